@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.IOException;
+
+/**
+ * In-memory component used by the benchmarks. The value returned by poll
+ * can be set directly, and can be read under the static lock of 
+ * BenchController.
+ */
+public class BenchComponent extends AbstractComponent {
+	private final boolean analog;
+	private final boolean relative;
+	private float value;
+	private boolean static_lock;
+
+	public BenchComponent(String name, Identifier id, boolean analog, boolean relative) {
+		super(name, id);
+		this.analog = analog;
+		this.relative = relative;
+	}
+
+	public final boolean isAnalog() {
+		return analog;
+	}
+
+	public final boolean isRelative() {
+		return relative;
+	}
+
+	public final void setValue(float value) {
+		this.value = value;
+	}
+
+	final void setStaticLock(boolean static_lock) {
+		this.static_lock = static_lock;
+	}
+
+	protected final float poll() throws IOException {
+		if (static_lock) {
+			synchronized (BenchController.STATIC_LOCK) {
+				return value;
+			}
+		}
+		return value;
+	}
+}
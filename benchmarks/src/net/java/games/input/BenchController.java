@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.IOException;
+
+/**
+ * In-memory controller used by the benchmarks. It has a number of
+ * absolute axes followed by a number of buttons and can simulate the cost
+ * of the native calls made when a real device is polled. It can also 
+ * report a number of axis events on every poll. <br>
+ * With the static lock set every event and component value goes through
+ * one monitor shared by all controllers, and events through one shared 
+ * scratch Event, the way LinuxControllers worked before each device had 
+ * its own scratch objects.
+ */
+public class BenchController extends AbstractController {
+	final static Object STATIC_LOCK = new Object();
+	private final static Event shared_event = new Event();
+
+	private final long poll_cost_nanos;
+	private final int events_per_poll;
+	private final int num_axes;
+	private int events_left;
+	private int event_count;
+	private boolean static_lock;
+
+	public BenchController(String name, int num_axes, int num_buttons, long poll_cost_nanos) {
+		this(name, num_axes, num_buttons, poll_cost_nanos, 0);
+	}
+
+	public BenchController(String name, int num_axes, int num_buttons, long poll_cost_nanos, int events_per_poll) {
+		super(name, createComponents(num_axes, num_buttons), new Controller[]{}, new Rumbler[]{});
+		this.poll_cost_nanos = poll_cost_nanos;
+		this.events_per_poll = num_axes > 0 ? events_per_poll : 0;
+		this.num_axes = num_axes;
+	}
+
+	private final static Component[] createComponents(int num_axes, int num_buttons) {
+		Component[] components = new Component[num_axes + num_buttons];
+		for (int i = 0; i < num_axes; i++)
+			components[i] = new BenchComponent("Axis " + i, Component.Identifier.Axis.X, true, false);
+		for (int i = 0; i < num_buttons; i++)
+			components[num_axes + i] = new BenchComponent("Button " + i, Component.Identifier.Button._0, false, false);
+		return components;
+	}
+
+	public final void setStaticLock(boolean static_lock) {
+		this.static_lock = static_lock;
+		Component[] components = getComponents();
+		for (int i = 0; i < components.length; i++)
+			((BenchComponent)components[i]).setStaticLock(static_lock);
+	}
+
+	public Type getType() {
+		return Type.GAMEPAD;
+	}
+
+	protected void pollDevice() throws IOException {
+		events_left = events_per_poll;
+		if (poll_cost_nanos > 0) {
+			long end = System.nanoTime() + poll_cost_nanos;
+			while (System.nanoTime() < end)
+				;
+		}
+	}
+
+	protected boolean getNextDeviceEvent(Event event) throws IOException {
+		if (static_lock) {
+			synchronized (STATIC_LOCK) {
+				if (!nextEvent(shared_event))
+					return false;
+				event.set(shared_event);
+				return true;
+			}
+		}
+		return nextEvent(event);
+	}
+
+	private final boolean nextEvent(Event event) {
+		if (events_left == 0)
+			return false;
+		events_left--;
+		event_count++;
+		// Every event changes the value so none are skipped by poll()
+		event.set(getComponents()[event_count % num_axes], (event_count & 0xff)/255f - 0.5f, event_count);
+		return true;
+	}
+}
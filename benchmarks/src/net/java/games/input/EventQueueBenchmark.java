@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds a batch of events to an EventQueue, as a poll does, and drains it, 
+ * for each overflow policy. The queue holds 128 events so the larger batch
+ * overflows it. Half the events are for axes and half for buttons, so the
+ * coalescing policy merges some and keeps the rest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventQueueBenchmark {
+	@Param({"0", "1", "2", "3"})
+	public int policy;
+
+	@Param({"16", "512"})
+	public int batch;
+
+	private EventQueue queue;
+	private Event[] events;
+	private final Event event = new Event();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		queue = new EventQueue(128, policy);
+		BenchController controller = new BenchController("Pad", 4, 4, 0);
+		Component[] components = controller.getComponents();
+		events = new Event[batch];
+		for (int i = 0; i < batch; i++) {
+			events[i] = new Event();
+			Component component = components[i % components.length];
+			float value = component.isAnalog() ? (i & 0xff)/255f : (i/components.length) & 1;
+			events[i].set(component, value, i);
+		}
+	}
+
+	/* GROW keeps growing up to its limit, so start each iteration from 128 */
+	@Setup(Level.Iteration)
+	public void reset() {
+		queue = new EventQueue(128, policy);
+	}
+
+	@Benchmark
+	public int addAndDrain() {
+		for (int i = 0; i < events.length; i++)
+			queue.add(events[i]);
+		queue.flush();
+		int count = 0;
+		while (queue.getNextEvent(event))
+			count++;
+		return count;
+	}
+}
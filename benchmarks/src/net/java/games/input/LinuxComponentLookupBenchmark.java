@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves a stream of keyboard events to components, comparing the
+ * <code>HashMap</code> keyed by <code>LinuxAxisDescriptor</code> the event
+ * devices used to have with the dense <code>LinuxComponentTable</code>. <br>
+ * The stream is what a keyboard reports for a key press, an
+ * <code>EV_MSC</code> scan code, the <code>EV_KEY</code> event and an
+ * <code>EV_SYN</code>, so two thirds of the lookups miss. The identifier
+ * benchmarks compare the old identifier map of <code>AbstractController</code>
+ * with <code>getComponent</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinuxComponentLookupBenchmark {
+	private final static int MSC_SCAN = 0x04;
+	private final static int STREAM_LENGTH = 3*1024;
+
+	@Param({"104", "250"})
+	public int keys;
+
+	private int[] types;
+	private int[] codes;
+	private Component.Identifier[] ids;
+	private Map descriptor_map;
+	private LinuxComponentTable table;
+	private Map id_map;
+	private AbstractController controller;
+	private final LinuxAxisDescriptor descriptor = new LinuxAxisDescriptor();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		descriptor_map = new HashMap();
+		table = new LinuxComponentTable();
+		id_map = new HashMap();
+		Component[] components = new Component[keys];
+		for (int i = 0; i < keys; i++) {
+			int code = i + 1;
+			LinuxEventComponent event_component = new LinuxEventComponent(null, LinuxNativeTypesMap.getButtonID(code), false, NativeDefinitions.EV_KEY, code, 0, 1, 0);
+			LinuxComponent component = new LinuxComponent(event_component);
+			descriptor_map.put(event_component.getDescriptor(), component);
+			table.put(NativeDefinitions.EV_KEY, code, component);
+			components[i] = component;
+		}
+		for (int i = components.length - 1; i >= 0; i--)
+			id_map.put(components[i].getIdentifier(), components[i]);
+		controller = new AbstractController("Keyboard", components, new Controller[]{}, new Rumbler[]{}) {
+			protected boolean getNextDeviceEvent(Event event) {
+				return false;
+			}
+		};
+
+		Random random = new Random(4711);
+		types = new int[STREAM_LENGTH];
+		codes = new int[STREAM_LENGTH];
+		ids = new Component.Identifier[STREAM_LENGTH/3];
+		for (int i = 0; i < STREAM_LENGTH; i += 3) {
+			int code = 1 + random.nextInt(keys);
+			types[i] = NativeDefinitions.EV_MSC;
+			codes[i] = MSC_SCAN;
+			types[i + 1] = NativeDefinitions.EV_KEY;
+			codes[i + 1] = code;
+			types[i + 2] = NativeDefinitions.EV_SYN;
+			codes[i + 2] = 0;
+			ids[i/3] = components[code - 1].getIdentifier();
+		}
+	}
+
+	@Benchmark
+	public int descriptorHashMap() {
+		int found = 0;
+		for (int i = 0; i < STREAM_LENGTH; i++) {
+			descriptor.set(types[i], codes[i]);
+			if (descriptor_map.get(descriptor) != null)
+				found++;
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int denseTable() {
+		int found = 0;
+		for (int i = 0; i < STREAM_LENGTH; i++) {
+			if (table.get(types[i], codes[i]) != null)
+				found++;
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int identifierHashMap() {
+		int found = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (id_map.get(ids[i]) != null)
+				found++;
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int identifierTable() {
+		int found = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (controller.getComponent(ids[i]) != null)
+				found++;
+		}
+		return found;
+	}
+}
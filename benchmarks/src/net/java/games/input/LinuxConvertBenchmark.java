@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converts raw Linux event values to component values, for a 16 bit 
+ * absolute axis, a key and a hat made from two hat axes. Each operation
+ * converts a block of 256 values. The components have no device, so 
+ * nothing is read from the kernel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinuxConvertBenchmark {
+	private final static int BLOCK = 256;
+
+	private LinuxEventComponent axis;
+	private LinuxEventComponent key;
+	private LinuxPOV pov;
+	private LinuxAxisDescriptor[] pov_descriptors;
+	private float[] axis_values;
+	private float[] key_values;
+	private float[] pov_values;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		axis = new LinuxEventComponent(null, Component.Identifier.Axis.X, false, NativeDefinitions.EV_ABS, NativeDefinitions.ABS_X, -32768, 32767, 128);
+		key = new LinuxEventComponent(null, Component.Identifier.Key.A, false, NativeDefinitions.EV_KEY, NativeDefinitions.KEY_A, 0, 1, 0);
+		LinuxEventComponent hat_x = new LinuxEventComponent(null, Component.Identifier.Axis.POV, false, NativeDefinitions.EV_ABS, NativeDefinitions.ABS_HAT0X, -1, 1, 0);
+		LinuxEventComponent hat_y = new LinuxEventComponent(null, Component.Identifier.Axis.POV, false, NativeDefinitions.EV_ABS, NativeDefinitions.ABS_HAT0Y, -1, 1, 0);
+		pov = new LinuxPOV(hat_x, hat_y);
+		axis_values = new float[BLOCK];
+		key_values = new float[BLOCK];
+		pov_values = new float[BLOCK];
+		pov_descriptors = new LinuxAxisDescriptor[BLOCK];
+		for (int i = 0; i < BLOCK; i++) {
+			axis_values[i] = (i*257) - 32768;
+			key_values[i] = i & 1;
+			pov_values[i] = (i % 3) - 1;
+			pov_descriptors[i] = (i & 1) == 0 ? hat_x.getDescriptor() : hat_y.getDescriptor();
+		}
+	}
+
+	@Benchmark
+	public float absAxis() {
+		float sum = 0;
+		for (int i = 0; i < BLOCK; i++)
+			sum += axis.convertValue(axis_values[i]);
+		return sum;
+	}
+
+	@Benchmark
+	public float key() {
+		float sum = 0;
+		for (int i = 0; i < BLOCK; i++)
+			sum += key.convertValue(key_values[i]);
+		return sum;
+	}
+
+	@Benchmark
+	public float pov() {
+		float sum = 0;
+		for (int i = 0; i < BLOCK; i++)
+			sum += pov.convertValue(pov_values[i], pov_descriptors[i]);
+		return sum;
+	}
+}
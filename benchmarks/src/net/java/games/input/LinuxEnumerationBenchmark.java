@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to enumerate a fixture device tree with 
+ * LinuxDeviceProbe, as LinuxEnvironmentPlugin does at startup. <br>
+ * The fixture is a temporary directory of eventN files. Each file holds the
+ * number of ioctls a real device of that kind needs (name, input id, the 
+ * capability bits and one EVIOCGABS per axis). The probe opens the file, 
+ * reads the count and waits ioctlMicros for each ioctl, so the result does 
+ * not depend on the devices attached to the machine running the benchmark.
+ * threads = 1 is the old sequential enumeration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinuxEnumerationBenchmark {
+	/* name, input id, version, EV bits, KEY, ABS, REL and FF bits */
+	private final static int BASE_IOCTLS = 8;
+
+	@Param({"8", "32"})
+	public int nodes;
+
+	@Param({"1", "4", "8"})
+	public int threads;
+
+	@Param({"100"})
+	public int ioctlMicros;
+
+	private File dir;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = File.createTempFile("gcp-input", "");
+		dir.delete();
+		if (!dir.mkdir())
+			throw new IOException("Can't create " + dir);
+		Random random = new Random(nodes);
+		for (int i = 0; i < nodes; i++) {
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(dir, "event" + i)));
+			try {
+				// Keyboards and mice have no axes, pads have up to 8
+				out.writeInt(BASE_IOCTLS + random.nextInt(9));
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		for (int i = 0; i < files.length; i++)
+			files[i].delete();
+		dir.delete();
+	}
+
+	@Benchmark
+	public Object[] enumerate() {
+		File[] files = dir.listFiles(new FilenameFilter() {
+			public final boolean accept(File dir, String name) {
+				return name.startsWith("event");
+			}
+		});
+		LinuxDeviceProbe.sortByNodeNumber(files);
+		final long ioctl_nanos = TimeUnit.MICROSECONDS.toNanos(ioctlMicros);
+		return LinuxDeviceProbe.probeAll(files, new LinuxDeviceProbe.Probe() {
+			public final Object probe(File node) throws IOException {
+				DataInputStream in = new DataInputStream(new FileInputStream(node));
+				try {
+					int ioctls = in.readInt();
+					for (int i = 0; i < ioctls; i++)
+						waitNanos(ioctl_nanos);
+					return node.getName();
+				} finally {
+					in.close();
+				}
+			}
+		}, threads);
+	}
+
+	private final static void waitNanos(long nanos) {
+		long deadline = System.nanoTime() + nanos;
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0)
+			LockSupport.parkNanos(remaining);
+	}
+}
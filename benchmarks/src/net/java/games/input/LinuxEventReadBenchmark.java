@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares reading evdev events through the native library, one JNI call 
+ * per event, with LinuxNIOEventReader which decodes a whole read() of events
+ * in Java. <br>
+ * Both read the same fixture file of struct input_event records so no input 
+ * devices are needed, but the native library must be loadable (Linux only). 
+ * Each operation is one event so the score is events per second; the 
+ * reciprocal is the cost per event. The benchmarks run on a single thread
+ * so this is also the number of events handled per second of CPU time. <br>
+ * The batch variants read through a LinuxEventBuffer as 
+ * LinuxEventDevice.readEvents does when a controller is polled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinuxEventReadBenchmark {
+	private final static int EVENTS = 4096;
+
+	private File fixture;
+	private final LinuxEvent linux_event = new LinuxEvent();
+	private final LinuxEventBuffer buffer = new LinuxEventBuffer(64);
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		// Loads the native library
+		Class.forName("net.java.games.input.LinuxEnvironmentPlugin");
+		int event_size = ControllerEnvironment.wordsize == 32 ? 16 : 24;
+		ByteBuffer events = ByteBuffer.allocate(EVENTS*event_size).order(ByteOrder.nativeOrder());
+		for (int i = 0; i < EVENTS; i++) {
+			if (event_size == 16) {
+				events.putInt(i/1000);
+				events.putInt((i%1000)*1000);
+			} else {
+				events.putLong(i/1000);
+				events.putLong((i%1000)*1000);
+			}
+			events.putShort((short)NativeDefinitions.EV_ABS);
+			events.putShort((short)NativeDefinitions.ABS_X);
+			events.putInt(i);
+		}
+		fixture = File.createTempFile("evdev", ".bin");
+		FileOutputStream out = new FileOutputStream(fixture);
+		try {
+			out.write(events.array());
+		} finally {
+			out.close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void jni(Blackhole bh) throws IOException {
+		long fd = LinuxEventDevice.nOpen(fixture.getPath(), false);
+		try {
+			for (int i = 0; i < EVENTS; i++) {
+				LinuxEventDevice.nGetNextEvent(fd, linux_event);
+				bh.consume(linux_event.getValue());
+			}
+		} finally {
+			LinuxEventDevice.nClose(fd);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void nio(Blackhole bh) throws IOException {
+		LinuxNIOEventReader reader = new LinuxNIOEventReader(fixture.getPath(), EVENTS);
+		try {
+			while (reader.read() >= 0)
+				;
+			while (reader.getNextEvent(linux_event))
+				bh.consume(linux_event.getValue());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void jniBatch(Blackhole bh) throws IOException {
+		long fd = LinuxEventDevice.nOpen(fixture.getPath(), false);
+		try {
+			for (int i = 0; i < EVENTS; i += buffer.capacity()) {
+				buffer.clear();
+				buffer.readNative(fd);
+				while (buffer.next(linux_event))
+					bh.consume(linux_event.getValue());
+			}
+		} finally {
+			LinuxEventDevice.nClose(fd);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void nioBatch(Blackhole bh) throws IOException {
+		LinuxNIOEventReader reader = new LinuxNIOEventReader(fixture.getPath(), EVENTS);
+		try {
+			while (reader.read() >= 0)
+				;
+			buffer.clear();
+			while (reader.getNextEvents(buffer) > 0) {
+				while (buffer.next(linux_event))
+					bh.consume(linux_event.getValue());
+				buffer.clear();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Polls N synthetic devices from N threads, each thread polling its own
+ * device and taking its events, as the poll workers do. <br>
+ * Without the static lock the devices share no state, so the throughput 
+ * per thread should stay flat as threads are added. With it every event 
+ * and component value is handed through one static monitor and scratch 
+ * Event, the way LinuxControllers did before each device had its own, so
+ * the difference between the two is the cost of the removed locks. The 
+ * devices are BenchControllers, not LinuxEventDevices, which can't be 
+ * opened without real input devices, so the native reads are not 
+ * included. Set the number of threads/devices with <code>-t</code>, the 
+ * default is 4.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Thread)
+public class PollContentionBenchmark {
+	@Param({"0", "8", "64"})
+	public int eventsPerPoll;
+
+	@Param({"false", "true"})
+	public boolean staticLock;
+
+	private BenchController controller;
+	private EventQueue queue;
+	private final Event event = new Event();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		controller = new BenchController("Pad", 6, 16, 0, eventsPerPoll);
+		controller.setEventQueueSize(128);
+		controller.setStaticLock(staticLock);
+		queue = controller.getEventQueue();
+	}
+
+	@Benchmark
+	public int poll() {
+		controller.poll();
+		int count = 0;
+		while (queue.getNextEvent(event))
+			count++;
+		return count;
+	}
+}
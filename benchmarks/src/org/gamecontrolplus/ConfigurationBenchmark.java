@@ -0,0 +1,103 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a device configuration with 24 inputs, from a file with 
+ * Configuration.makeConfiguration and line by line. Configuration.IDE is
+ * set to ECLIPSE so the file name is used as it is, without a sketch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigurationBenchmark {
+	private File file;
+	private String[] lines;
+	private Configuration configuration;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		Configuration.IDE = Configuration.ECLIPSE;
+		lines = new String[24];
+		for (int i = 0; i < lines.length; i++) {
+			boolean slider = i < 8;
+			lines[i] = "INPUT" + i + PCPconstants.SEPARATOR + "Input " + i + PCPconstants.SEPARATOR 
+				+ (slider ? PCPconstants.SLIDER_TYPE : PCPconstants.BUTTON_TYPE) + PCPconstants.SEPARATOR 
+				+ (slider ? "SLIDER" : "BUTTON") + PCPconstants.SEPARATOR + (slider ? "x" : "Button " + i) 
+				+ PCPconstants.SEPARATOR + i + PCPconstants.SEPARATOR + "1.0" + PCPconstants.SEPARATOR + "0.05";
+		}
+		file = File.createTempFile("config", ".txt");
+		FileWriter out = new FileWriter(file);
+		try {
+			out.write("Benchmark controller\n");
+			for (int i = 0; i < lines.length; i++)
+				out.write(lines[i] + "\n");
+		} finally {
+			out.close();
+		}
+		configuration = Configuration.makeConfiguration(null, file.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public Configuration loadFile() {
+		return Configuration.makeConfiguration(null, file.getPath());
+	}
+
+	@Benchmark
+	public float parseLines() {
+		float sum = 0;
+		for (int i = 0; i < lines.length; i++)
+			sum += configuration.new InputConfig(lines[i]).tolerance;
+		return sum;
+	}
+}
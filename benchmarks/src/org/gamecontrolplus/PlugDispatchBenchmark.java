@@ -0,0 +1,151 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ways a button or hat plug can be called. <br>
+ * The <code>reflective</code> benchmarks call the method the way Plug used
+ * to, with a new argument array and new boxed hat values for every call. 
+ * The <code>plug</code> benchmarks call a Plug made from a method name and
+ * the <code>listener</code> benchmarks a Plug wrapping a ButtonListener or
+ * HatListener. The hat values stay the same, as they do while a hat is held.
+ * Run with <code>-prof gc</code> to see the allocation rate of each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlugDispatchBenchmark {
+
+	public static class Target {
+		int presses;
+		float sum;
+
+		void press(){
+			presses++;
+		}
+
+		void hat(float x, float y){
+			sum += x + y;
+		}
+	}
+
+	private Target target;
+	private Method pressMethod;
+	private Method hatMethod;
+	private Plug pressPlug;
+	private Plug hatPlug;
+	private Plug pressListener;
+	private Plug hatListener;
+	private float x = 0.70710677f;
+	private float y = -0.70710677f;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		target = new Target();
+		pressMethod = findMethod("press");
+		hatMethod = findMethod("hat");
+		pressPlug = new Plug(target, "press");
+		hatPlug = new Plug(target, "hat", true);
+		pressListener = new Plug(new ButtonListener(){
+			public void buttonEvent(){
+				target.press();
+			}
+		});
+		hatListener = new Plug(new HatListener(){
+			public void hatEvent(float x, float y){
+				target.hat(x, y);
+			}
+		});
+	}
+
+	/**
+	 * Find the method by name as Plug used to.
+	 */
+	private Method findMethod(String name){
+		Method[] methods = Target.class.getDeclaredMethods();
+		for (int i = 0; i < methods.length; i++){
+			methods[i].setAccessible(true);
+			if (methods[i].getName().equals(name))
+				return methods[i];
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	@Benchmark
+	public int buttonReflective() throws Exception {
+		pressMethod.invoke(target, new Object[]{});
+		return target.presses;
+	}
+
+	@Benchmark
+	public int buttonPlug() {
+		pressPlug.call();
+		return target.presses;
+	}
+
+	@Benchmark
+	public int buttonListener() {
+		pressListener.call();
+		return target.presses;
+	}
+
+	@Benchmark
+	public float hatReflective() throws Exception {
+		hatMethod.invoke(target, new Object[]{Float.valueOf(x), Float.valueOf(y)});
+		return target.sum;
+	}
+
+	@Benchmark
+	public float hatPlug() {
+		hatPlug.call(x, y);
+		return target.sum;
+	}
+
+	@Benchmark
+	public float hatListener() {
+		hatListener.call(x, y);
+		return target.sum;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.util.concurrent.TimeUnit;
+
+import net.java.games.input.BenchController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Measures how the number of samples each device receives per second changes
+ * as devices are added and shared between poll threads. <br>
+ * Each JMH thread plays the part of one PollWorker and polls its own shard of 
+ * the synthetic devices, so run with <code>-t</code> equal to the number of 
+ * poll threads. One operation is one pass over a shard, so the reported 
+ * throughput divided by the number of threads is the sample rate of each 
+ * device. <br>
+ * <code>pollCost</code> simulates the time taken by the native calls made 
+ * when a real device is polled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedPollBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Devices {
+		@Param({"1", "4", "16", "32"})
+		public int deviceCount;
+
+		@Param({"0", "20000"})
+		public long pollCost;
+
+		ControlDevice[] devices;
+
+		@Setup(Level.Trial)
+		public void setup(){
+			devices = new ControlDevice[deviceCount];
+			for(int i = 0; i < deviceCount; i++){
+				devices[i] = new ControlDevice(new BenchController("Pad " + i, 6, 16, pollCost), null);
+				devices[i].open();
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Shard {
+		PollWorker worker;
+
+		@Setup(Level.Trial)
+		public void setup(Devices devices, ThreadParams threads){
+			worker = new PollWorker(PollScheduler.makeScheduler(PCPconstants.POLL_FREE_RUNNING, 1), threads.getThreadIndex());
+			for(int i = threads.getThreadIndex(); i < devices.devices.length; i += threads.getThreadCount())
+				worker.add(devices.devices[i]);
+		}
+	}
+
+	@Benchmark
+	public void pollShard(Shard shard){
+		shard.worker.pollOnce();
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.util.concurrent.TimeUnit;
+
+import net.java.games.input.BenchComponent;
+import net.java.games.input.Component;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Updates the sliders of a device once, as each poll does. 
+ * <code>sliderObjects</code> calls ControlSlider.update() on each slider
+ * in turn and <code>sliderArrays</code> updates them all in the single
+ * loop of InputValues.update() that ControlDevice uses. 
+ * <code>relativeSliders</code> updates relative sliders, which keep their 
+ * own state, and then ends the frame for them as ControlIO.pre() does. 
+ * Half the axes are inside their tolerance.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SliderUpdateBenchmark {
+	@Param({"6", "32"})
+	public int sliderCount;
+
+	private InputValues values;
+	private ControlSlider[] sliders;
+	private ControlRelativeSlider[] relativeSliders;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Component[] components = new Component[sliderCount];
+		Component[] relativeComponents = new Component[sliderCount];
+		for (int i = 0; i < sliderCount; i++) {
+			BenchComponent component = new BenchComponent("Axis " + i, Component.Identifier.Axis.X, true, false);
+			component.setValue((i & 1) == 0 ? 0.5f : 0.01f);
+			components[i] = component;
+			relativeComponents[i] = new BenchComponent("Relative " + i, Component.Identifier.Axis.X, true, true);
+		}
+		values = new InputValues(components, sliderCount);
+		sliders = new ControlSlider[sliderCount];
+		for (int i = 0; i < sliderCount; i++) {
+			sliders[i] = new ControlSlider(components[i], values, i);
+			sliders[i].setTolerance(0.05f);
+			sliders[i].setMultiplier(2f);
+		}
+		InputValues relativeValues = new InputValues(relativeComponents, sliderCount);
+		relativeSliders = new ControlRelativeSlider[sliderCount];
+		for (int i = 0; i < sliderCount; i++)
+			relativeSliders[i] = new ControlRelativeSlider(relativeComponents[i], relativeValues, i);
+	}
+
+	@Benchmark
+	public float sliderObjects() {
+		for (int i = 0; i < sliders.length; i++)
+			sliders[i].update();
+		return values.value[0];
+	}
+
+	@Benchmark
+	public float sliderArrays() {
+		values.update();
+		return values.value[0];
+	}
+
+	@Benchmark
+	public float relativeSliders() {
+		for (int i = 0; i < relativeSliders.length; i++) {
+			relativeSliders[i].update();
+			relativeSliders[i].updateRelative();
+		}
+		return relativeSliders[0].getValue();
+	}
+}
@@ -54,6 +54,7 @@ public abstract class AbstractComponent implements Component {
 
 	private float value;
 	private float event_value;
+	private int index = -1;
     
     /**
      * Protected constructor
@@ -104,6 +105,17 @@ public abstract class AbstractComponent implements Component {
     final void setPollData(float value) {
         this.value = value;
     }
+
+	/**
+	 * The position of this component in its controller's component array
+	 */
+	final int getIndex() {
+		return index;
+	}
+
+	final void setIndex(int index) {
+		this.index = index;
+	}
  
     public final float getEventValue() {
         return event_value;
@@ -38,9 +38,7 @@
  *****************************************************************************/
 package net.java.games.input;
 
-import java.util.Map;
 import java.util.List;
-import java.util.HashMap;
 import java.util.ArrayList;
 
 import java.io.IOException;
@@ -52,7 +50,8 @@ import java.io.IOException;
 public abstract class AbstractController implements Controller {
 	final static int EVENT_QUEUE_DEPTH = 32;
 	
-	private final static Event event = new Event();
+	/* Only used inside poll() */
+	private final Event event = new Event();
 	
     /**
      * Human-readable name for this Controller
@@ -75,11 +74,34 @@ public abstract class AbstractController implements Controller {
     private final Rumbler[] rumblers;
 
 	/**
-	 * Map from Component.Identifiers to Components
+	 * Components indexed by Component.Identifier index
 	 */
-	private final Map id_to_components = new HashMap();
+	private final Component[] id_to_components;
 
-	private EventQueue event_queue = new EventQueue(EVENT_QUEUE_DEPTH);
+	private volatile EventQueue event_queue = new EventQueue(EVENT_QUEUE_DEPTH);
+
+	/**
+	 * A second queue given every event, for a library that reads the 
+	 * events itself and leaves the event queue to the application. Null 
+	 * if there is none.
+	 */
+	private volatile EventQueue event_tap;
+
+	/**
+	 * Buffer for the events of a poll while they are being recorded
+	 */
+	private volatile EventRecorder.Batch recorder_batch;
+
+	/**
+	 * Counters updated by poll(), null unless they have been enabled.
+	 */
+	private volatile ControllerStats stats;
+
+	/**
+	 * Time from each event to poll() reading it, null unless latency 
+	 * tracing is enabled.
+	 */
+	private volatile LatencyHistogram read_latencies;
     
     /**
      * Protected constructor for a controller containing the specified
@@ -94,9 +116,15 @@ public abstract class AbstractController implements Controller {
         this.components = components;
         this.children = children;
         this.rumblers = rumblers;
+		int max_index = -1;
+		for (int i = 0; i < components.length; i++) {
+			((AbstractComponent)components[i]).setIndex(i);
+			max_index = Math.max(max_index, components[i].getIdentifier().getIndex());
+		}
+		this.id_to_components = new Component[max_index + 1];
 		// process from last to first to let earlier listed Components get higher priority
 		for (int i = components.length - 1; i >= 0; i--) {
-			id_to_components.put(components[i].getIdentifier(), components[i]);
+			id_to_components[components[i].getIdentifier().getIndex()] = components[i];
 		}
 	}
 
@@ -128,7 +156,10 @@ public abstract class AbstractController implements Controller {
      * if no component with the specified type could be found.
      */
     public final Component getComponent(Component.Identifier id) {
-		return (Component)id_to_components.get(id);
+		int index = id.getIndex();
+		if (index >= id_to_components.length)
+			return null;
+		return id_to_components[index];
     }
 
     /**
@@ -139,6 +170,15 @@ public abstract class AbstractController implements Controller {
         return rumblers;
     }
 
+    /**
+     * Returns the clock the times of this Controller's events come from.
+     * @return null by default, when the times can't be compared with 
+     * System.nanoTime(), can be overridden
+     */
+    public EventClock getEventClock() {
+        return null;
+    }
+
     /**
      * Returns the port type for this Controller.
      * @return PortType.UNKNOWN by default, can be overridden
@@ -179,9 +219,22 @@ public abstract class AbstractController implements Controller {
      * Creates a new EventQueue. Events in old queue are lost.
      */
 	public final void setEventQueueSize(int size) {
+		setEventQueue(size, event_queue.getPolicy());
+	}
+
+    /**
+     * Creates a new EventQueue with the given overflow policy, one of 
+     * EventQueue.DROP_NEWEST, DROP_OLDEST or GROW. Events in old queue are lost.
+     */
+	public final void setEventQueuePolicy(int policy) {
+		setEventQueue(event_queue.getCapacity(), policy);
+	}
+
+	private final synchronized void setEventQueue(int size, int policy) {
 		try {
+			EventQueue queue = new EventQueue(size, policy);
 			setDeviceEventQueueSize(size);
-			event_queue = new EventQueue(size);
+			event_queue = queue;
 		} catch (IOException e) {
 			ControllerEnvironment.logln("Failed to create new event queue of size " + size + ": " + e);
 		}
@@ -197,14 +250,80 @@ public abstract class AbstractController implements Controller {
 		return event_queue;
 	}
 
+	/**
+	 * Set a queue that is given a copy of every event added to the event
+	 * queue, null to remove it. The tap has its own size and overflow 
+	 * policy and is read independently, by a single thread.
+	 */
+	public final void setEventTap(EventQueue tap) {
+		this.event_tap = tap;
+	}
+
+	public final EventQueue getEventTap() {
+		return event_tap;
+	}
+
+	final void setRecorderBatch(EventRecorder.Batch batch) {
+		this.recorder_batch = batch;
+	}
+
+	/**
+	 * Start or stop counting polls and events. Stopping discards the 
+	 * counters. Not synchronized with poll(), so it never waits for a poll
+	 * and the poll in progress may or may not be counted.
+	 */
+	public final void setStatsEnabled(boolean enabled) {
+		if (!enabled)
+			stats = null;
+		else if (stats == null)
+			stats = new ControllerStats();
+	}
+
+	/**
+	 * The poll and event counters, null if they are not enabled.
+	 */
+	public final ControllerStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Start or stop latency tracing. While it is enabled each event is 
+	 * given the time poll() read it, and if the controller has an event 
+	 * clock the time from the event to then is recorded. Stopping discards
+	 * the recorded times. Like setStatsEnabled it does not wait for a poll.
+	 */
+	public final void setLatencyTracing(boolean enabled) {
+		if (!enabled)
+			read_latencies = null;
+		else if (read_latencies == null)
+			read_latencies = new LatencyHistogram();
+	}
+
+	/**
+	 * The time from each event to poll() reading it, null if latency 
+	 * tracing is not enabled.
+	 */
+	public final LatencyHistogram getReadLatencies() {
+		return read_latencies;
+	}
+
 	protected abstract boolean getNextDeviceEvent(Event event) throws IOException;
 
 	protected void pollDevice() throws IOException {
 	}
 
-	/* poll() is synchronized to protect the static event */
+	/* poll() is synchronized to protect the event and the event queue, 
+	 * each controller has its own so different controllers can be polled 
+	 * in parallel */
 	public synchronized boolean poll() {
 		Component[] components = getComponents();
+		EventRecorder.Batch recorder_batch = this.recorder_batch;
+		EventQueue event_tap = this.event_tap;
+		ControllerStats stats = this.stats;
+		long start = stats == null ? 0 : System.nanoTime();
+		int num_events = 0;
+		LatencyHistogram read_latencies = this.read_latencies;
+		EventClock clock = read_latencies == null ? null : getEventClock();
 		try {
 			pollDevice();
 			for (int i = 0; i < components.length; i++) {
@@ -228,9 +347,27 @@ public abstract class AbstractController implements Controller {
 						continue;
 					component.setEventValue(value);
 				}
-				if (!event_queue.isFull())
-					event_queue.add(event);
+				if (recorder_batch != null)
+					recorder_batch.add(component.getIndex(), value, event.getNanos());
+				if (read_latencies != null) {
+					long now = System.nanoTime();
+					event.setReadNanos(now);
+					if (clock != null)
+						read_latencies.record(now - clock.toNanoTime(event.getNanos()));
+				}
+				/* The queue counts any event it has to drop */
+				event_queue.add(event);
+				if (event_tap != null)
+					event_tap.add(event);
+				num_events++;
 			}
+			event_queue.flush();
+			if (event_tap != null)
+				event_tap.flush();
+			if (recorder_batch != null)
+				recorder_batch.flush();
+			if (stats != null)
+				stats.polled(start, System.nanoTime(), num_events);
 			return true;
 		} catch (IOException e) {
 			ControllerEnvironment.logln("Failed to poll device: " + e.getMessage());
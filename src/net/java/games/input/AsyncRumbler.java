@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+/**
+ * A Rumbler that can be changed without waiting for the device. <br>
+ * Intensities set faster than the device can be updated are coalesced, 
+ * only the latest one is sent, and an intensity the same as the one 
+ * already applied is not sent again. 
+ */
+public interface AsyncRumbler extends Rumbler {
+
+	/**
+	 * Set the intensity and return immediately. The device is updated 
+	 * later on another thread.
+	 */
+	public void rumbleAsync(float intensity);
+
+	/**
+	 * The number of intensities that were replaced by a later one before
+	 * they were sent to the device.
+	 */
+	public long getCoalescedCount();
+
+	/**
+	 * The number of intensities that were not sent because the device 
+	 * already had that intensity.
+	 */
+	public long getSkippedCount();
+
+	/**
+	 * The number of intensities sent to the device.
+	 */
+	public long getAppliedCount();
+}
@@ -94,12 +94,32 @@ public interface Component {
          * Name of axis type
          */
         private final String name;
-        
+
+        /**
+         * Dense index of this identifier, unique per instance
+         */
+        private final int index;
+
+        private static int next_index;
+
         /**
          * Protected constructor
          */
         protected Identifier(String name) {
             this.name = name;
+            this.index = allocateIndex();
+        }
+
+        private final static synchronized int allocateIndex() {
+            return next_index++;
+        }
+
+        /**
+         * Returns the dense index of this identifier, used for
+         * array based identifier to component lookups.
+         */
+        final int getIndex() {
+            return index;
         }
         
         /**
@@ -38,8 +38,11 @@
  *****************************************************************************/
 package net.java.games.input;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A ControllerEnvironment represents a collection of controllers that are
@@ -74,6 +77,24 @@ public abstract class ControllerEnvironment{
 		System.out.print(msg);
 	}
 
+	/**
+	 * Set this system property to "true" to read the Linux event devices 
+	 * in Java (LinuxNIOEnvironmentPlugin) rather than through the native library.
+	 */
+	public static final String LINUX_NIO_PROPERTY = "net.java.games.input.linux.nio";
+
+	/**
+	 * Set this system property to the path of a log written by EventRecorder
+	 * to replay it (ReplayEnvironmentPlugin) instead of using the devices.
+	 */
+	public static final String REPLAY_PROPERTY = "net.java.games.input.replay";
+
+	/**
+	 * Set this system property to a number of controllers to use that many
+	 * synthetic controllers (SyntheticEnvironmentPlugin) instead of the devices.
+	 */
+	public static final String SYNTHETIC_PROPERTY = "net.java.games.input.synthetic";
+
 	/**
 	 * Standing for MACOSX
 	 */
@@ -109,9 +130,10 @@ public abstract class ControllerEnvironment{
 	 */
 	//private static final File pluginFolder = getPlugInFolder();
 	/**
-	 * List of controller listeners
+	 * List of controller listeners. Controllers can be added and removed on
+	 * another thread so the list is copied when it is changed.
 	 */
-	protected final ArrayList controllerListeners = new ArrayList();
+	protected final List controllerListeners = new CopyOnWriteArrayList();
 
 	/**
 	 * Protected constructor for subclassing.
@@ -184,7 +206,7 @@ public abstract class ControllerEnvironment{
 	 * has been added.
 	 */
 	protected void fireControllerAdded(Controller c){
-		System.out.println("Added");
+		logln("Controller added: " + c);
 		ControllerEvent ev = new ControllerEvent(c);
 		Iterator it = controllerListeners.iterator();
 		while (it.hasNext()){
@@ -197,7 +219,7 @@ public abstract class ControllerEnvironment{
 	 * has been lost.
 	 */
 	protected void fireControllerRemoved(Controller c){
-		System.out.println("REMOVED");
+		logln("Controller removed: " + c);
 		ControllerEvent ev = new ControllerEvent(c);
 		Iterator it = controllerListeners.iterator();
 		while (it.hasNext()){
@@ -208,18 +230,52 @@ public abstract class ControllerEnvironment{
 	private static ControllerEnvironment instance;
 
 	/**
-	 * Gives back the Environment fitting for your OS
+	 * Use the given environment instead of the one for the OS, for example
+	 * a ReplayEnvironmentPlugin. It must be set before anything has called
+	 * getEnvironment().
+	 */
+	public static void setEnvironment(ControllerEnvironment environment){
+		if (instance != null && instance != environment)
+			throw new IllegalStateException("The controller environment is already in use");
+		instance = environment;
+	}
+
+	/**
+	 * Gives back the Environment fitting for your OS, or a replay of a
+	 * recording if REPLAY_PROPERTY is set
 	 * @return
 	 */
 	public static ControllerEnvironment getEnvironment(){
 		if (instance == null){
+			String replay = System.getProperty(REPLAY_PROPERTY);
+			if (replay != null && replay.length() > 0){
+				try{
+					ReplayEnvironmentPlugin plugin = new ReplayEnvironmentPlugin(new File(replay));
+					String speed = System.getProperty(ReplayEnvironmentPlugin.SPEED_PROPERTY);
+					if (speed != null)
+						plugin.setSpeed(Double.parseDouble(speed));
+					instance = plugin;
+					return instance;
+				}catch (IOException e){
+					throw new RuntimeException("Unable to replay " + replay + ": " + e.getMessage());
+				}
+			}
+			String synthetic = System.getProperty(SYNTHETIC_PROPERTY);
+			if (synthetic != null && synthetic.length() > 0){
+				double rate = Double.parseDouble(System.getProperty(SyntheticEnvironmentPlugin.RATE_PROPERTY, "1000"));
+				instance = new SyntheticEnvironmentPlugin(Integer.parseInt(synthetic), rate);
+				return instance;
+			}
 			//setLibPath();
 			switch (os){
 				case WINDOWS:
 					instance = new DirectInputEnvironmentPlugin();
 					break;
 				case LINUX:
-					instance = new LinuxEnvironmentPlugin();
+					if (Boolean.getBoolean(LINUX_NIO_PROPERTY))
+						instance = new LinuxNIOEnvironmentPlugin();
+					else
+						instance = new LinuxEnvironmentPlugin();
 					break;
 				case MACOSX:
 					instance = new OSXEnvironmentPlugin();
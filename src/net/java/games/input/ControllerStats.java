@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+/**
+ * Counters kept by a controller while it is polled, when enabled with
+ * AbstractController.setStatsEnabled. <br>
+ * Only the thread polling the controller writes them, so they are plain
+ * volatile fields. The rates are worked out at the end of a poll once a 
+ * second has passed since they were last updated, and so cover about the 
+ * last second of polling.
+ */
+public final class ControllerStats {
+	private final static long RATE_INTERVAL = 1000000000L;
+
+	private final LatencyHistogram poll_times = new LatencyHistogram();
+
+	private volatile long poll_count;
+	private volatile long event_count;
+	private volatile float poll_rate;
+	private volatile float event_rate;
+
+	/* Only used by the polling thread */
+	private long rate_start = System.nanoTime();
+	private long rate_polls;
+	private long rate_events;
+
+	ControllerStats() {
+	}
+
+	/**
+	 * Count a poll.
+	 * @param start the time the poll started, from System.nanoTime()
+	 * @param end the time the poll ended
+	 * @param events the number of events added to the queue
+	 */
+	final void polled(long start, long end, int events) {
+		poll_times.record(end - start);
+		long polls = poll_count + 1;
+		long total_events = event_count + events;
+		poll_count = polls;
+		event_count = total_events;
+		long elapsed = end - rate_start;
+		if (elapsed >= RATE_INTERVAL) {
+			poll_rate = (float)((polls - rate_polls)*1e9/elapsed);
+			event_rate = (float)((total_events - rate_events)*1e9/elapsed);
+			rate_start = end;
+			rate_polls = polls;
+			rate_events = total_events;
+		}
+	}
+
+	/**
+	 * The number of times the controller has been polled.
+	 */
+	public final long getPollCount() {
+		return poll_count;
+	}
+
+	/**
+	 * The number of events added to the controller's queue, including any
+	 * the queue dropped.
+	 */
+	public final long getEventCount() {
+		return event_count;
+	}
+
+	/**
+	 * Polls per second over about the last second.
+	 */
+	public final float getPollRate() {
+		return poll_rate;
+	}
+
+	/**
+	 * Events per second over about the last second.
+	 */
+	public final float getEventRate() {
+		return event_rate;
+	}
+
+	/**
+	 * How long each poll took.
+	 */
+	public final LatencyHistogram getPollTimes() {
+		return poll_times;
+	}
+}
@@ -42,17 +42,43 @@ public final class Event {
     private Component component;
     private float value;
 	private long nanos;
+	private long first_nanos;
+	private long read_nanos;
 
     public final void set(Event other) {
-		this.set(other.getComponent(), other.getValue(), other.getNanos());
+		this.component = other.component;
+		this.value = other.value;
+		this.nanos = other.nanos;
+		this.first_nanos = other.first_nanos;
+		this.read_nanos = other.read_nanos;
     }
 
     public final void set(Component component, float value, long nanos) {
 		this.component = component;
 		this.value = value;
 		this.nanos = nanos;
+		this.first_nanos = nanos;
+		this.read_nanos = 0;
     }
 
+	final void setReadNanos(long read_nanos) {
+		this.read_nanos = read_nanos;
+	}
+
+	/**
+	 * Fold a later event for the same component into this one. Relative
+	 * values are added, otherwise the later value replaces this one. The 
+	 * first time is kept.
+	 */
+	final void merge(Event later) {
+		if (component.isRelative())
+			this.value += later.value;
+		else
+			this.value = later.value;
+		this.nanos = later.nanos;
+		this.read_nanos = later.read_nanos;
+	}
+
 	public final Component getComponent() {
 		return component;
 	}
@@ -70,6 +96,24 @@ public final class Event {
 		return nanos;
 	}
 
+	/**
+	 * Return the time of the first of the events merged into this one by
+	 * a coalescing EventQueue, in nanoseconds. The same as getNanos() for
+	 * an event that wasn't merged.
+	 */
+	public final long getFirstNanos() {
+		return first_nanos;
+	}
+
+	/**
+	 * Return the System.nanoTime() when the event was read from the device
+	 * by Controller.poll(), or 0 if latency tracing is not enabled for the
+	 * controller.
+	 */
+	public final long getReadNanos() {
+		return read_nanos;
+	}
+
 	public final String toString() {
 		return "Event: component = " + component + " | value = " + value;
 	}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.util.Arrays;
+
+/**
+ * The clock a controller's event times come from, used to compare them with
+ * System.nanoTime(). <br>
+ * NANO_TIME is for events timed with System.nanoTime() itself. WALL_CLOCK
+ * is for events timed in nanoseconds since the epoch, as the Linux event
+ * devices time them, and converts them with an offset between the two
+ * clocks. The offset is measured when the class is loaded, to the nearest
+ * millisecond, and more precisely by calibrate(), which waits for the 
+ * wall clock to tick over a few times. A change to the system time makes 
+ * the offset wrong until it is calibrated again.
+ */
+public final class EventClock {
+	/** Event times from System.nanoTime() */
+	public final static EventClock NANO_TIME = new EventClock(false);
+	/** Event times in nanoseconds since the epoch */
+	public final static EventClock WALL_CLOCK = new EventClock(true);
+
+	private final static int CALIBRATION_TICKS = 5;
+
+	private final boolean wall;
+	/* The wall clock time minus System.nanoTime() */
+	private volatile long offset;
+
+	private EventClock(boolean wall) {
+		this.wall = wall;
+		if (wall)
+			offset = System.currentTimeMillis()*1000000L - System.nanoTime();
+	}
+
+	/**
+	 * Convert an event time from this clock to the System.nanoTime() time 
+	 * of the same moment.
+	 */
+	public final long toNanoTime(long event_nanos) {
+		return event_nanos - offset;
+	}
+
+	/**
+	 * Measure the offset between the clocks more precisely. Takes a few
+	 * ticks of System.currentTimeMillis(), about 5 milliseconds on most
+	 * systems, busy waiting for each.
+	 */
+	public final void calibrate() {
+		if (!wall)
+			return;
+		long[] offsets = new long[CALIBRATION_TICKS];
+		for (int i = 0; i < CALIBRATION_TICKS; i++) {
+			long millis = System.currentTimeMillis();
+			long nanos;
+			long next;
+			do {
+				nanos = System.nanoTime();
+				next = System.currentTimeMillis();
+			} while (next == millis);
+			/* The tick was between the last two reads of the wall clock,
+			 * nanos was read between them too */
+			offsets[i] = next*1000000L - nanos;
+		}
+		Arrays.sort(offsets);
+		offset = offsets[CALIBRATION_TICKS/2];
+	}
+
+	/**
+	 * The wall clock time minus System.nanoTime(), 0 for NANO_TIME.
+	 */
+	public final long getOffset() {
+		return offset;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the records of a log written by EventRecorder, one at a time. The 
+ * file is memory mapped and the fields of the current record are left in 
+ * the reader, so reading events does not create objects.
+ */
+final class EventLogReader {
+	private final File file;
+	private final ByteBuffer buffer;
+
+	/* Time of the last event read */
+	private long nanos;
+
+	/* Fields of the current CONTROLLER_RECORD */
+	int controller_id;
+	String name;
+	String type;
+	String[] component_names;
+	String[] identifier_names;
+	int[] component_flags;
+
+	/* Fields of the current event record, controller_id is shared */
+	int component_index;
+	float value;
+	long event_nanos;
+
+	EventLogReader(File file) throws IOException {
+		this.file = file;
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			in.close();
+		}
+		if (buffer.remaining() < 8 || buffer.getInt() != EventRecorder.MAGIC)
+			throw new IOException(file + " is not an event log");
+		int version = buffer.getInt();
+		if (version != EventRecorder.FORMAT_VERSION)
+			throw new IOException(file + " is event log version " + version + ", expected " + EventRecorder.FORMAT_VERSION);
+	}
+
+	/**
+	 * Read the next record.
+	 * @return the tag of the record, END_RECORD at the end of the log
+	 */
+	final int next() throws IOException {
+		if (!buffer.hasRemaining())
+			return EventRecorder.END_RECORD;
+		try {
+			int tag = buffer.get();
+			switch (tag) {
+				case EventRecorder.END_RECORD:
+					buffer.position(buffer.position() - 1);
+					break;
+				case EventRecorder.CONTROLLER_RECORD:
+					readController();
+					break;
+				case EventRecorder.EVENT_RECORD:
+				case EventRecorder.EVENT_ZERO_RECORD:
+				case EventRecorder.EVENT_ONE_RECORD:
+					controller_id = (int)getVarint();
+					component_index = (int)getVarint();
+					long delta = getVarint();
+					nanos += (delta >>> 1) ^ -(delta & 1);
+					event_nanos = nanos;
+					if (tag == EventRecorder.EVENT_RECORD)
+						value = buffer.getFloat();
+					else
+						value = tag == EventRecorder.EVENT_ONE_RECORD ? 1f : 0f;
+					break;
+				default:
+					throw new IOException("Unknown record " + tag + " at " + (buffer.position() - 1) + " in " + file);
+			}
+			return tag;
+		} catch (BufferUnderflowException e) {
+			// The recording stopped in the middle of a record
+			buffer.position(buffer.limit());
+			return EventRecorder.END_RECORD;
+		}
+	}
+
+	private final void readController() throws IOException {
+		controller_id = (int)getVarint();
+		name = getString();
+		type = getString();
+		int count = (int)getVarint();
+		component_names = new String[count];
+		identifier_names = new String[count];
+		component_flags = new int[count];
+		for (int i = 0; i < count; i++) {
+			component_names[i] = getString();
+			identifier_names[i] = getString();
+			component_flags[i] = buffer.get() & 0xff;
+		}
+	}
+
+	private final long getVarint() throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = buffer.get();
+			result |= (long)(b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return result;
+		}
+		throw new IOException("Malformed number at " + buffer.position() + " in " + file);
+	}
+
+	private final String getString() throws IOException {
+		int length = (int)getVarint();
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IOException(e.toString());
+		}
+	}
+}
@@ -38,36 +38,273 @@
  *****************************************************************************/
 package net.java.games.input;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A queue of events from one controller. <br>
+ * The queue is lock-free for a single producer, the thread polling the
+ * controller, and a single consumer. The events are copied into a ring of
+ * preallocated Events whose size is a power of two. <br>
+ * What happens when an event is added to a full queue is decided by the
+ * overflow policy, and every event dropped is counted. <br>
+ * A COALESCE queue holds back analog events until the controller has been
+ * polled, merging the events for each component into one. Digital events,
+ * such as button presses, are never merged and the queue grows rather 
+ * than drop them.
+ */
 public final class EventQueue {
-	private final Event[] queue;
-	
-	private int head;
-	private int tail;
+	/** When full, new events are dropped. This is the default */
+	public final static int DROP_NEWEST = 0;
+	/** When full, the oldest event is dropped to make room */
+	public final static int DROP_OLDEST = 1;
+	/** When full, the queue grows, up to MAX_GROWN_SIZE events */
+	public final static int GROW = 2;
+	/** Analog events for the same component are merged. If the queue is
+	 * full they are held back until there is room, digital events grow 
+	 * the queue */
+	public final static int COALESCE = 3;
+
+	/** The largest a GROW queue will get, after that new events are dropped */
+	public final static int MAX_GROWN_SIZE = 1 << 16;
+
+	private final int policy;
+	/* The ring the producer adds to. Only GROW queues ever replace it. 
+	 * Volatile so getCapacity() can be called from any thread */
+	private volatile Ring producer_ring;
+	/* The ring the consumer takes from */
+	private Ring consumer_ring;
 
+	/* Analog events waiting to be added, at most one per component. Only 
+	 * used by the producer of a COALESCE queue */
+	private Event[] staged = new Event[0];
+	private int num_staged;
+
+	/* Only written by the producer */
+	private volatile long dropped;
+	private volatile long added;
+	private volatile long coalesced;
+
+	/**
+	 * Create a queue that drops new events when it is full.
+	 * @param size the minimum number of events the queue holds
+	 */
 	public EventQueue(int size) {
-		queue = new Event[size + 1];
-		for (int i = 0; i < queue.length; i++)
-			queue[i] = new Event();
+		this(size, DROP_NEWEST);
+	}
+
+	/**
+	 * @param size the minimum number of events the queue holds, rounded up
+	 * to a power of two
+	 * @param policy DROP_NEWEST, DROP_OLDEST, GROW or COALESCE
+	 */
+	public EventQueue(int size, int policy) {
+		if (policy < DROP_NEWEST || policy > COALESCE)
+			throw new IllegalArgumentException("Unknown overflow policy " + policy);
+		this.policy = policy;
+		this.producer_ring = new Ring(size);
+		this.consumer_ring = producer_ring;
 	}
 
-	final synchronized void add(Event event) {
-		queue[tail].set(event);
-		tail = increase(tail);
+	/**
+	 * Add a copy of the event. Must only be called by one thread at a time.
+	 */
+	final void add(Event event) {
+		if (policy == COALESCE)
+			addCoalesced(event);
+		else if (!publish(event, false))
+			dropped++;
 	}
 
-	final synchronized boolean isFull() {
-		return increase(tail) == head;
+	private final void addCoalesced(Event event) {
+		Component component = event.getComponent();
+		if (component.isAnalog()) {
+			for (int i = 0; i < num_staged; i++) {
+				if (staged[i].getComponent() == component) {
+					staged[i].merge(event);
+					coalesced++;
+					return;
+				}
+			}
+			if (num_staged == staged.length) {
+				Event[] more = new Event[Math.max(4, staged.length*2)];
+				System.arraycopy(staged, 0, more, 0, staged.length);
+				for (int i = staged.length; i < more.length; i++)
+					more[i] = new Event();
+				staged = more;
+			}
+			staged[num_staged++].set(event);
+		} else {
+			/* Keep the analog events that came first ahead of it */
+			flush(true);
+			if (!publish(event, true))
+				dropped++;
+		}
 	}
 
-	private final int increase(int x) {
-		return (x + 1)%queue.length;
+	/**
+	 * Add the analog events held back by a COALESCE queue, as far as there
+	 * is room. Called by the producer after each poll.
+	 */
+	final void flush() {
+		if (num_staged > 0)
+			flush(false);
 	}
 
-	public final synchronized boolean getNextEvent(Event event) {
-		if (head == tail)
+	private final void flush(boolean grow) {
+		int count = 0;
+		while (count < num_staged) {
+			if (!publish(staged[count], grow)) {
+				if (grow)
+					dropped++;
+				else
+					break;
+			}
+			count++;
+		}
+		if (count == 0)
+			return;
+		/* Move the remaining events to the front, keeping the Events */
+		for (int i = 0; i < num_staged - count; i++) {
+			Event event = staged[i];
+			staged[i] = staged[i + count];
+			staged[i + count] = event;
+		}
+		num_staged -= count;
+	}
+
+	/* Add to the ring, returns false if there is no room */
+	private final boolean publish(Event event, boolean grow) {
+		Ring ring = producer_ring;
+		long tail = ring.tail.get();
+		if (tail - ring.head.get() == ring.events.length && !makeRoom(ring, grow))
 			return false;
-		event.set(queue[head]);
-		head = increase(head);
+		ring = producer_ring;
+		tail = ring.tail.get();
+		ring.events[(int)tail & ring.mask].set(event);
+		ring.tail.lazySet(tail + 1);
+		added++;
 		return true;
 	}
+
+	/* Try to make room in a full ring. Returns false if the new event has 
+	 * to be dropped instead */
+	private final boolean makeRoom(Ring ring, boolean grow) {
+		switch (grow ? GROW : policy) {
+			case DROP_OLDEST:
+				long head = ring.head.get();
+				/* If the consumer got there first there is room anyway */
+				if (ring.head.compareAndSet(head, head + 1))
+					dropped++;
+				return true;
+			case GROW:
+				if (ring.events.length >= MAX_GROWN_SIZE)
+					return false;
+				Ring grown = new Ring(ring.events.length*2);
+				producer_ring = grown;
+				/* The consumer moves on once it has emptied the old ring */
+				ring.next = grown;
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * True if adding an event now would drop an event.
+	 */
+	final boolean isFull() {
+		Ring ring = producer_ring;
+		return ring.tail.get() - ring.head.get() == ring.events.length && 
+			!((policy == GROW || policy == COALESCE) && ring.events.length < MAX_GROWN_SIZE);
+	}
+
+	/**
+	 * Copy the oldest event into event and remove it from the queue. Must 
+	 * only be called by one thread at a time.
+	 * @return false if the queue is empty
+	 */
+	public final boolean getNextEvent(Event event) {
+		Ring ring = consumer_ring;
+		while (true) {
+			long head = ring.head.get();
+			if (head == ring.tail.get()) {
+				Ring next = ring.next;
+				if (next == null)
+					return false;
+				/* The producer has finished with a ring once it links the 
+				 * next one, but it may have added to it just before that */
+				if (head == ring.tail.get()) {
+					ring = next;
+					consumer_ring = next;
+				}
+				continue;
+			}
+			event.set(ring.events[(int)head & ring.mask]);
+			/* Only fails if the producer dropped this event, DROP_OLDEST */
+			if (ring.head.compareAndSet(head, head + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * The overflow policy, DROP_NEWEST, DROP_OLDEST, GROW or COALESCE.
+	 */
+	public final int getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * The number of events the queue can currently hold.
+	 */
+	public final int getCapacity() {
+		return producer_ring.events.length;
+	}
+
+	/**
+	 * The number of events dropped because the queue was full.
+	 */
+	public final long getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * The number of events merged into an earlier event by a COALESCE queue.
+	 */
+	public final long getCoalescedCount() {
+		return coalesced;
+	}
+
+	/**
+	 * The number of events added to the queue.
+	 */
+	public final long getAddedCount() {
+		return added;
+	}
+
+	/* Index padded to its own cache line, so the producer and consumer 
+	 * don't slow each other down writing their indices */
+	private final static class PaddedAtomicLong extends AtomicLong {
+		private final static long serialVersionUID = 1L;
+		long p1, p2, p3, p4, p5, p6, p7;
+		long q1, q2, q3, q4, q5, q6, q7;
+	}
+
+	private final static class Ring {
+		final Event[] events;
+		final int mask;
+		final PaddedAtomicLong head = new PaddedAtomicLong();
+		final PaddedAtomicLong tail = new PaddedAtomicLong();
+		/* The ring the producer moved on to when this one filled up */
+		volatile Ring next;
+
+		Ring(int size) {
+			int capacity = 1;
+			while (capacity < size)
+				capacity <<= 1;
+			events = new Event[capacity];
+			for (int i = 0; i < events.length; i++)
+				events[i] = new Event();
+			mask = capacity - 1;
+		}
+	}
 }
@@ -0,0 +1,309 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Records the events of a set of controllers to a binary log file. <br>
+ * A controller is recorded once it is attached. Every event it adds to its
+ * queue from then on is appended to the log by the thread polling it, with
+ * the controller, the index of the component, the value and the event time.
+ * The events of a poll are collected in a buffer of the controller and 
+ * appended together at the end of the poll, so controllers polled in 
+ * parallel only meet on the recorder once per poll. The log is written 
+ * through a memory mapping of the end of the file which is moved on when 
+ * it fills up, so recording does not create any objects once the buffers
+ * have grown to the number of events in a poll. <br>
+ * The file starts with the magic number and format version as ints, 
+ * followed by records that each start with a tag byte:
+ * <ul>
+ * <li>CONTROLLER_RECORD: the controller number, name and type, the number 
+ * of components and for each its name, identifier name and flags 
+ * (1 analog, 2 relative, 4 axis identifier, 8 button identifier, 16 key 
+ * identifier). </li>
+ * <li>EVENT_RECORD: the controller number, component index, time and value
+ * as a float. EVENT_ZERO_RECORD and EVENT_ONE_RECORD leave the value out, 
+ * for button events. </li>
+ * <li>END_RECORD: there are no more records. Bytes after the last record 
+ * are zero so a log that was not closed also ends with one. </li>
+ * </ul>
+ * Numbers are unsigned varints, 7 bits per byte with the high bit set on 
+ * all but the last byte. The time is the difference from the time of the 
+ * previous event in the log, zigzag encoded as events from different 
+ * controllers can be out of order. Strings are a varint length followed by
+ * UTF-8.
+ */
+public final class EventRecorder {
+	final static int MAGIC = 0x4a49524c; // JIRL
+	/* Version 2 added the identifier flags to the component descriptions */
+	final static int FORMAT_VERSION = 2;
+
+	final static int END_RECORD = 0;
+	final static int CONTROLLER_RECORD = 1;
+	final static int EVENT_RECORD = 2;
+	final static int EVENT_ZERO_RECORD = 3;
+	final static int EVENT_ONE_RECORD = 4;
+
+	final static int FLAG_ANALOG = 1;
+	final static int FLAG_RELATIVE = 2;
+	final static int FLAG_AXIS = 4;
+	final static int FLAG_BUTTON = 8;
+	final static int FLAG_KEY = 16;
+
+	private final static int ONE_BITS = Float.floatToRawIntBits(1f);
+
+	/* Size of the mapped window at the end of the file */
+	private final static int CHUNK_SIZE = 1 << 22;
+	/* tag, controller, component, time and value */
+	private final static int MAX_EVENT_SIZE = 1 + 5 + 5 + 10 + 4;
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private MappedByteBuffer mapping;
+	/* Offset of the mapping in the file */
+	private long mapping_offset;
+	private long last_nanos;
+	private int num_controllers;
+	private long event_count;
+	private boolean closed;
+
+	/**
+	 * Create a recorder writing to the given file. An existing file is 
+	 * replaced.
+	 */
+	public EventRecorder(File file) throws IOException {
+		this.file = file;
+		this.raf = new RandomAccessFile(file, "rw");
+		raf.setLength(0);
+		this.channel = raf.getChannel();
+		this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK_SIZE);
+		mapping.putInt(MAGIC);
+		mapping.putInt(FORMAT_VERSION);
+	}
+
+	/**
+	 * Start recording the events of a controller. Its description is
+	 * written to the log first so the log can be replayed on its own.
+	 * @return the number of the controller in the log
+	 */
+	public final synchronized int attach(Controller controller) throws IOException {
+		if (!(controller instanceof AbstractController))
+			throw new IllegalArgumentException("Can't record " + controller.getName());
+		if (closed)
+			throw new IOException("The recorder is closed");
+		int id = num_controllers++;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(CONTROLLER_RECORD);
+		writeVarint(out, id);
+		writeString(out, controller.getName());
+		writeString(out, controller.getType().toString());
+		Component[] components = controller.getComponents();
+		writeVarint(out, components.length);
+		for (int i = 0; i < components.length; i++) {
+			writeString(out, components[i].getName());
+			writeString(out, components[i].getIdentifier().getName());
+			out.write(getFlags(components[i]));
+		}
+		ensureRemaining(out.size());
+		mapping.put(out.toByteArray());
+		((AbstractController)controller).setRecorderBatch(new Batch(this, id));
+		return id;
+	}
+
+	private final static int getFlags(Component component) {
+		int flags = 0;
+		if (component.isAnalog())
+			flags |= FLAG_ANALOG;
+		if (component.isRelative())
+			flags |= FLAG_RELATIVE;
+		Component.Identifier id = component.getIdentifier();
+		if (id instanceof Component.Identifier.Axis)
+			flags |= FLAG_AXIS;
+		else if (id instanceof Component.Identifier.Key)
+			flags |= FLAG_KEY;
+		else if (id instanceof Component.Identifier.Button)
+			flags |= FLAG_BUTTON;
+		return flags;
+	}
+
+	/**
+	 * Stop recording the events of a controller.
+	 */
+	public final void detach(Controller controller) {
+		if (controller instanceof AbstractController)
+			((AbstractController)controller).setRecorderBatch(null);
+	}
+
+	/**
+	 * The events of one controller waiting to be appended to the log. Only
+	 * used by the thread polling the controller.
+	 */
+	final static class Batch {
+		private final EventRecorder recorder;
+		private final int controller_id;
+		private int[] component_indices = new int[16];
+		private float[] values = new float[16];
+		private long[] nanos = new long[16];
+		private int size;
+
+		Batch(EventRecorder recorder, int controller_id) {
+			this.recorder = recorder;
+			this.controller_id = controller_id;
+		}
+
+		final void add(int component_index, float value, long event_nanos) {
+			if (size == values.length) {
+				component_indices = Arrays.copyOf(component_indices, size*2);
+				values = Arrays.copyOf(values, size*2);
+				nanos = Arrays.copyOf(nanos, size*2);
+			}
+			component_indices[size] = component_index;
+			values[size] = value;
+			nanos[size] = event_nanos;
+			size++;
+		}
+
+		/**
+		 * Append the events to the log and empty the batch.
+		 */
+		final void flush() {
+			if (size == 0)
+				return;
+			recorder.append(this);
+			size = 0;
+		}
+	}
+
+	/* Append the events of a batch. If the log can't be extended the error 
+	 * is logged and recording stops. */
+	private final synchronized void append(Batch batch) {
+		for (int i = 0; i < batch.size; i++) {
+			if (closed)
+				return;
+			try {
+				ensureRemaining(MAX_EVENT_SIZE);
+			} catch (IOException e) {
+				ControllerEnvironment.logln("Failed to extend event log " + file + ", recording stopped: " + e);
+				closed = true;
+				return;
+			}
+			float value = batch.values[i];
+			int bits = Float.floatToRawIntBits(value);
+			int tag = bits == 0 ? EVENT_ZERO_RECORD : bits == ONE_BITS ? EVENT_ONE_RECORD : EVENT_RECORD;
+			mapping.put((byte)tag);
+			putVarint(batch.controller_id);
+			putVarint(batch.component_indices[i]);
+			long delta = batch.nanos[i] - last_nanos;
+			last_nanos = batch.nanos[i];
+			putVarint((delta << 1) ^ (delta >> 63));
+			if (tag == EVENT_RECORD)
+				mapping.putFloat(value);
+			event_count++;
+		}
+	}
+
+	private final void putVarint(long value) {
+		while ((value & ~0x7fL) != 0) {
+			mapping.put((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		mapping.put((byte)value);
+	}
+
+	private final static void writeVarint(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int)value);
+	}
+
+	private final static void writeString(ByteArrayOutputStream out, String string) throws UnsupportedEncodingException {
+		byte[] bytes = string.getBytes("UTF-8");
+		writeVarint(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/* Move the mapping on to the end of the log if it has less than size 
+	 * bytes left */
+	private final void ensureRemaining(int size) throws IOException {
+		if (mapping.remaining() >= size)
+			return;
+		mapping_offset += mapping.position();
+		mapping = channel.map(FileChannel.MapMode.READ_WRITE, mapping_offset, Math.max(CHUNK_SIZE, size));
+	}
+
+	/**
+	 * The number of events recorded.
+	 */
+	public final synchronized long getEventCount() {
+		return event_count;
+	}
+
+	/**
+	 * The length of the log in bytes.
+	 */
+	public final synchronized long getSize() {
+		return closed && mapping == null ? mapping_offset : mapping_offset + mapping.position();
+	}
+
+	/**
+	 * Write the recorded events out to the file.
+	 */
+	public final synchronized void flush() {
+		if (mapping != null)
+			mapping.force();
+	}
+
+	/**
+	 * Stop recording and cut the file down to the length of the log. The
+	 * controllers are not detached, but any more events are ignored.
+	 */
+	public final synchronized void close() throws IOException {
+		if (mapping == null)
+			return;
+		closed = true;
+		mapping.force();
+		mapping_offset += mapping.position();
+		mapping = null;
+		try {
+			raf.setLength(mapping_offset);
+		} catch (IOException e) {
+			// Some platforms can't truncate a mapped file, the log still ends with zeros
+			ControllerEnvironment.logln("Failed to truncate event log " + file + ": " + e);
+		}
+		raf.close();
+	}
+}
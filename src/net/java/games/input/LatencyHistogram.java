@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds with fixed, power of two 
+ * buckets. Bucket 0 counts durations of 0 and bucket i those from 
+ * 2^(i-1) up to 2^i - 1, the last bucket also counts anything longer. <br>
+ * Recording is lock-free and does not create any objects. The counts are
+ * split into stripes chosen by thread, each on its own cache lines, so 
+ * threads recording at the same time rarely write to the same line. A 
+ * snapshot adds the stripes up.
+ */
+public final class LatencyHistogram {
+	/** The number of buckets, the last starts at about 1 second */
+	public final static int NUM_BUCKETS = 32;
+
+	private final static int NUM_STRIPES = 4;
+	/* The counts and total of a stripe, padded to a multiple of 8 longs */
+	private final static int STRIPE_SIZE = 40;
+	/* Offset of the total in a stripe */
+	private final static int TOTAL = NUM_BUCKETS;
+	/* Padding in front of the first stripe */
+	private final static int OFFSET = 8;
+
+	private final AtomicLongArray counts = new AtomicLongArray(OFFSET + NUM_STRIPES*STRIPE_SIZE);
+
+	/**
+	 * Count a duration.
+	 * @param nanos the duration in nanoseconds
+	 */
+	public final void record(long nanos) {
+		int stripe = OFFSET + ((int)Thread.currentThread().getId() & (NUM_STRIPES - 1))*STRIPE_SIZE;
+		counts.incrementAndGet(stripe + getBucket(nanos));
+		if (nanos > 0)
+			counts.addAndGet(stripe + TOTAL, nanos);
+	}
+
+	/**
+	 * The bucket a duration is counted in.
+	 */
+	public final static int getBucket(long nanos) {
+		if (nanos <= 0)
+			return 0;
+		return Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * The longest duration counted in a bucket, Long.MAX_VALUE for the last.
+	 */
+	public final static long getBucketLimit(int bucket) {
+		if (bucket >= NUM_BUCKETS - 1)
+			return Long.MAX_VALUE;
+		return (1L << bucket) - 1;
+	}
+
+	/**
+	 * Add up the counts so far. Durations recorded while the snapshot is 
+	 * taken may or may not be included.
+	 */
+	public final Snapshot getSnapshot() {
+		long[] bucket_counts = new long[NUM_BUCKETS];
+		long total = 0;
+		for (int s = 0; s < NUM_STRIPES; s++) {
+			int stripe = OFFSET + s*STRIPE_SIZE;
+			for (int i = 0; i < NUM_BUCKETS; i++)
+				bucket_counts[i] += counts.get(stripe + i);
+			total += counts.get(stripe + TOTAL);
+		}
+		return new Snapshot(bucket_counts, total);
+	}
+
+	/**
+	 * The counts of a histogram at one time.
+	 */
+	public final static class Snapshot {
+		private final long[] bucket_counts;
+		private final long count;
+		private final long total;
+
+		Snapshot(long[] bucket_counts, long total) {
+			this.bucket_counts = bucket_counts;
+			this.total = total;
+			long count = 0;
+			for (int i = 0; i < bucket_counts.length; i++)
+				count += bucket_counts[i];
+			this.count = count;
+		}
+
+		/**
+		 * The number of durations counted in a bucket.
+		 */
+		public final long getCount(int bucket) {
+			return bucket_counts[bucket];
+		}
+
+		/**
+		 * The number of durations counted.
+		 */
+		public final long getCount() {
+			return count;
+		}
+
+		/**
+		 * The sum of the durations counted, in nanoseconds.
+		 */
+		public final long getTotal() {
+			return total;
+		}
+
+		/**
+		 * The mean duration in nanoseconds, 0 if nothing was counted.
+		 */
+		public final double getMean() {
+			return count == 0 ? 0 : (double)total/count;
+		}
+
+		/**
+		 * An upper bound on the given percentile, the limit of the bucket 
+		 * it falls in. 0 if nothing was counted.
+		 * @param percentile between 0 and 100
+		 */
+		public final long getPercentile(double percentile) {
+			if (count == 0)
+				return 0;
+			long rank = (long)Math.ceil(count*Math.min(100, Math.max(0, percentile))/100);
+			long seen = 0;
+			for (int i = 0; i < NUM_BUCKETS; i++) {
+				seen += bucket_counts[i];
+				if (seen >= rank && seen > 0)
+					return getBucketLimit(i);
+			}
+			return getBucketLimit(NUM_BUCKETS - 1);
+		}
+
+		/**
+		 * The counts of this snapshot and another added together.
+		 */
+		public final Snapshot plus(Snapshot other) {
+			long[] sum = new long[NUM_BUCKETS];
+			for (int i = 0; i < NUM_BUCKETS; i++)
+				sum[i] = bucket_counts[i] + other.bucket_counts[i];
+			return new Snapshot(sum, total + other.total);
+		}
+
+		/**
+		 * A snapshot with no durations counted.
+		 */
+		public final static Snapshot empty() {
+			return new Snapshot(new long[NUM_BUCKETS], 0);
+		}
+	}
+}
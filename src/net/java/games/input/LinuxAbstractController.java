@@ -61,7 +61,7 @@ final class LinuxAbstractController extends AbstractController {
 	}
 
 	public final void pollDevice() throws IOException {
-		device.pollKeyStates();
+		device.pollState();
 	}
 
 	protected final boolean getNextDeviceEvent(Event event) throws IOException {
@@ -71,4 +71,8 @@ final class LinuxAbstractController extends AbstractController {
 	public Type getType() {
 		return type;
 	}
+
+	public final EventClock getEventClock() {
+		return EventClock.WALL_CLOCK;
+	}
 }
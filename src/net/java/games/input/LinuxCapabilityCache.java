@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the capabilities of the event devices seen before, so they 
+ * don't have to be probed every time the devices are opened. <br>
+ * An entry is keyed by the device input id (bus, vendor, product and 
+ * version) and name. It holds the components with their abs ranges, whether
+ * the device can rumble and its type. A hit is only used if the device 
+ * still reports the same event types, which takes a single ioctl. <br>
+ * The cache is a small binary file that is memory mapped when loaded. 
+ * Entries are decoded from the mapping when they are first looked up, and 
+ * the file is only rewritten when new devices have been probed.
+ */
+final class LinuxCapabilityCache {
+	/** The cache file, defaults to linux-capabilities.bin in ~/.gamecontrolplus. 
+	 * Set to an empty string to disable the cache */
+	public final static String FILE_PROPERTY = "net.java.games.input.linux.capabilityCache";
+
+	private final static int MAGIC = 0x4a494343; // JICC
+	private final static int FORMAT_VERSION = 1;
+	/* Entries not used in this run are dropped once there are more than this */
+	private final static int MAX_ENTRIES = 256;
+
+	/* Flags for whether a device can rumble */
+	final static int RUMBLE_KNOWN = 1;
+	final static int HAS_RUMBLE = 2;
+
+	/* Index in this array is the type code stored in the file */
+	private final static Controller.Type[] TYPES = {
+		null, Controller.Type.UNKNOWN, Controller.Type.MOUSE, Controller.Type.KEYBOARD, 
+		Controller.Type.GAMEPAD, Controller.Type.STICK
+	};
+
+	private final File file;
+	/* Maps key to Integer offset into mapping, or to Entry once decoded or added */
+	private final Map entries = new HashMap();
+	/* Keys looked up or added in this run */
+	private final List used = new ArrayList();
+	private ByteBuffer mapping;
+	private boolean dirty;
+
+	private LinuxCapabilityCache(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Open the cache named by FILE_PROPERTY.
+	 * @return the cache, or null if it is disabled
+	 */
+	public final static LinuxCapabilityCache open() {
+		return (LinuxCapabilityCache)AccessController.doPrivileged(new PrivilegedAction() {
+			public final Object run() {
+				String path = System.getProperty(FILE_PROPERTY);
+				if (path == null)
+					path = System.getProperty("user.home") + File.separator + ".gamecontrolplus" + File.separator + "linux-capabilities.bin";
+				if (path.length() == 0)
+					return null;
+				LinuxCapabilityCache cache = new LinuxCapabilityCache(new File(path));
+				cache.load();
+				return cache;
+			}
+		});
+	}
+
+	private final void load() {
+		if (!file.isFile())
+			return;
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+					ControllerEnvironment.logln("Ignoring capability cache " + file + " from a different version");
+					return;
+				}
+				int count = buffer.getInt();
+				for (int i = 0; i < count; i++) {
+					int offset = buffer.position();
+					entries.put(readKey(buffer), Integer.valueOf(offset));
+					skipCapabilities(buffer);
+				}
+				mapping = buffer;
+			} finally {
+				// The mapping stays valid after the channel is closed
+				in.close();
+			}
+		} catch (BufferUnderflowException e) {
+			ControllerEnvironment.logln("Ignoring truncated capability cache " + file);
+			entries.clear();
+		} catch (IOException e) {
+			ControllerEnvironment.logln("Failed to read capability cache " + file + ": " + e.getMessage());
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Find the capabilities of a device.
+	 * @param event_type_bits the device's current event types 
+	 * @return the entry, or null if the device is not known or has changed
+	 */
+	public final synchronized Entry lookup(LinuxInputID input_id, String name, byte[] event_type_bits) {
+		String key = makeKey(input_id, name);
+		Object value = entries.get(key);
+		if (value == null)
+			return null;
+		Entry entry;
+		if (value instanceof Integer) {
+			ByteBuffer buffer = mapping.duplicate();
+			buffer.position(((Integer)value).intValue());
+			try {
+				entry = readEntry(buffer);
+			} catch (UnsupportedEncodingException e) {
+				return null;
+			} catch (BufferUnderflowException e) {
+				entries.remove(key);
+				return null;
+			}
+			entries.put(key, entry);
+		} else
+			entry = (Entry)value;
+		if (!Arrays.equals(entry.event_type_bits, event_type_bits))
+			return null;
+		if (!used.contains(key))
+			used.add(key);
+		return entry;
+	}
+
+	/**
+	 * Add the probed capabilities of a device, replacing any old entry.
+	 */
+	public final synchronized void put(LinuxInputID input_id, String name, byte[] event_type_bits, List components, int rumble_flags, Controller.Type type) {
+		int type_code = -1;
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i] == type)
+				type_code = i;
+		}
+		if (type_code == -1)
+			return;
+		Entry entry = new Entry(input_id, name, event_type_bits, (byte)type_code, (byte)rumble_flags, components.size());
+		for (int i = 0; i < components.size(); i++) {
+			LinuxEventComponent component = (LinuxEventComponent)components.get(i);
+			entry.native_types[i] = component.getDescriptor().getType();
+			entry.native_codes[i] = component.getDescriptor().getCode();
+			entry.mins[i] = component.getMin();
+			entry.maxs[i] = component.getMax();
+			entry.flats[i] = component.getFlat();
+		}
+		String key = makeKey(input_id, name);
+		entries.put(key, entry);
+		if (!used.contains(key))
+			used.add(key);
+		dirty = true;
+	}
+
+	/**
+	 * Write the cache back to its file if any entries were added.
+	 */
+	public final synchronized void save() {
+		if (!dirty)
+			return;
+		dirty = false;
+		final List keys = new ArrayList(used);
+		Iterator it = entries.keySet().iterator();
+		while (it.hasNext() && keys.size() < MAX_ENTRIES) {
+			Object key = it.next();
+			if (!keys.contains(key))
+				keys.add(key);
+		}
+		AccessController.doPrivileged(new PrivilegedAction() {
+			public final Object run() {
+				try {
+					write(keys);
+				} catch (IOException e) {
+					ControllerEnvironment.logln("Failed to write capability cache " + file + ": " + e.getMessage());
+				}
+				return null;
+			}
+		});
+	}
+
+	private final void write(List keys) throws IOException {
+		List encoded = new ArrayList();
+		int size = 12;
+		for (int i = 0; i < keys.size(); i++) {
+			Object key = keys.get(i);
+			Object value = entries.get(key);
+			Entry entry;
+			if (value instanceof Integer) {
+				ByteBuffer buffer = mapping.duplicate();
+				buffer.position(((Integer)value).intValue());
+				entry = readEntry(buffer);
+			} else
+				entry = (Entry)value;
+			byte[] bytes = entry.encode();
+			encoded.add(bytes);
+			size += bytes.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(MAGIC);
+		buffer.putInt(FORMAT_VERSION);
+		buffer.putInt(encoded.size());
+		for (int i = 0; i < encoded.size(); i++)
+			buffer.put((byte[])encoded.get(i));
+		buffer.flip();
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Can't create " + dir);
+		// Write a new file and rename it so other processes never see a partial cache
+		File tmp = new File(file.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(tmp);
+		try {
+			FileChannel channel = out.getChannel();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file))
+				throw new IOException("Can't rename " + tmp);
+		}
+	}
+
+	private final static String makeKey(LinuxInputID input_id, String name) {
+		return Integer.toHexString(input_id.getBusType()) + ":" + Integer.toHexString(input_id.getVendor()) + ":" +
+			Integer.toHexString(input_id.getProduct()) + ":" + Integer.toHexString(input_id.getVersion()) + ":" + name;
+	}
+
+	private final static LinuxInputID readInputID(ByteBuffer buffer) {
+		return new LinuxInputID(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+	}
+
+	private final static String readName(ByteBuffer buffer) throws UnsupportedEncodingException {
+		byte[] name = new byte[buffer.getShort() & 0xffff];
+		buffer.get(name);
+		return new String(name, "UTF-8");
+	}
+
+	private final static String readKey(ByteBuffer buffer) throws UnsupportedEncodingException {
+		LinuxInputID input_id = readInputID(buffer);
+		return makeKey(input_id, readName(buffer));
+	}
+
+	private final static void skipCapabilities(ByteBuffer buffer) {
+		int num_bits = buffer.get() & 0xff;
+		buffer.position(buffer.position() + num_bits + 2);
+		int num_components = buffer.getShort() & 0xffff;
+		buffer.position(buffer.position() + num_components*Entry.COMPONENT_SIZE);
+	}
+
+	private final static Entry readEntry(ByteBuffer buffer) throws UnsupportedEncodingException {
+		LinuxInputID input_id = readInputID(buffer);
+		String name = readName(buffer);
+		byte[] event_type_bits = new byte[buffer.get() & 0xff];
+		buffer.get(event_type_bits);
+		byte type_code = buffer.get();
+		byte rumble_flags = buffer.get();
+		int num_components = buffer.getShort() & 0xffff;
+		Entry entry = new Entry(input_id, name, event_type_bits, type_code, rumble_flags, num_components);
+		for (int i = 0; i < num_components; i++) {
+			entry.native_types[i] = buffer.getShort();
+			entry.native_codes[i] = buffer.getShort();
+			entry.mins[i] = buffer.getInt();
+			entry.maxs[i] = buffer.getInt();
+			entry.flats[i] = buffer.getInt();
+		}
+		if (type_code < 0 || type_code >= TYPES.length)
+			throw new BufferUnderflowException();
+		return entry;
+	}
+
+	/** The cached capabilities of one device */
+	final static class Entry {
+		final static int COMPONENT_SIZE = 16;
+
+		private final LinuxInputID input_id;
+		private final String name;
+		private final byte[] event_type_bits;
+		private final byte type_code;
+		private final byte rumble_flags;
+		private final int[] native_types;
+		private final int[] native_codes;
+		private final int[] mins;
+		private final int[] maxs;
+		private final int[] flats;
+
+		private Entry(LinuxInputID input_id, String name, byte[] event_type_bits, byte type_code, byte rumble_flags, int num_components) {
+			this.input_id = input_id;
+			this.name = name;
+			this.event_type_bits = event_type_bits;
+			this.type_code = type_code;
+			this.rumble_flags = rumble_flags;
+			this.native_types = new int[num_components];
+			this.native_codes = new int[num_components];
+			this.mins = new int[num_components];
+			this.maxs = new int[num_components];
+			this.flats = new int[num_components];
+		}
+
+		public final Controller.Type getType() {
+			return TYPES[type_code];
+		}
+
+		/** True if it is known whether the device can rumble */
+		public final boolean isRumbleKnown() {
+			return (rumble_flags & RUMBLE_KNOWN) != 0;
+		}
+
+		public final boolean hasRumble() {
+			return (rumble_flags & HAS_RUMBLE) != 0;
+		}
+
+		/**
+		 * Create the components of the device without asking the device.
+		 */
+		public final List createComponents(LinuxEventDevice device) {
+			List components = new ArrayList(native_types.length);
+			for (int i = 0; i < native_types.length; i++) {
+				int native_type = native_types[i];
+				int native_code = native_codes[i];
+				Component.Identifier id;
+				if (native_type == NativeDefinitions.EV_KEY)
+					id = LinuxNativeTypesMap.getButtonID(native_code);
+				else if (native_type == NativeDefinitions.EV_ABS)
+					id = LinuxNativeTypesMap.getAbsAxisID(native_code);
+				else
+					id = LinuxNativeTypesMap.getRelAxisID(native_code);
+				components.add(new LinuxEventComponent(device, id, native_type == NativeDefinitions.EV_REL, native_type, native_code, mins[i], maxs[i], flats[i]));
+			}
+			return components;
+		}
+
+		private final byte[] encode() throws UnsupportedEncodingException {
+			byte[] name_bytes = name.getBytes("UTF-8");
+			ByteBuffer buffer = ByteBuffer.allocate(16 + 2 + name_bytes.length + 1 + event_type_bits.length + 4 + native_types.length*COMPONENT_SIZE);
+			buffer.putInt(input_id.getBusType());
+			buffer.putInt(input_id.getVendor());
+			buffer.putInt(input_id.getProduct());
+			buffer.putInt(input_id.getVersion());
+			buffer.putShort((short)name_bytes.length);
+			buffer.put(name_bytes);
+			buffer.put((byte)event_type_bits.length);
+			buffer.put(event_type_bits);
+			buffer.put(type_code);
+			buffer.put(rumble_flags);
+			buffer.putShort((short)native_types.length);
+			for (int i = 0; i < native_types.length; i++) {
+				buffer.putShort((short)native_types[i]);
+				buffer.putShort((short)native_codes[i]);
+				buffer.putInt(mins[i]);
+				buffer.putInt(maxs[i]);
+				buffer.putInt(flats[i]);
+			}
+			return buffer.array();
+		}
+	}
+}
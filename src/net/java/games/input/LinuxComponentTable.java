@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+/**
+ * Dense (type, code) to component lookup for a single event device. Each
+ * event type the device can map gets an array sized by the type's maximum
+ * code, so that resolving an incoming event is two bounds checks and two
+ * array loads, without hashing or allocating a descriptor key.
+ */
+final class LinuxComponentTable {
+	private final LinuxComponent[] key_components = new LinuxComponent[NativeDefinitions.KEY_MAX + 1];
+	private final LinuxComponent[] abs_components = new LinuxComponent[NativeDefinitions.ABS_MAX + 1];
+	private final LinuxComponent[] rel_components = new LinuxComponent[NativeDefinitions.REL_MAX + 1];
+
+	private final LinuxComponent[] getComponents(int type) {
+		switch (type) {
+			case NativeDefinitions.EV_KEY:
+				return key_components;
+			case NativeDefinitions.EV_ABS:
+				return abs_components;
+			case NativeDefinitions.EV_REL:
+				return rel_components;
+			default:
+				return null;
+		}
+	}
+
+	public final void put(int type, int code, LinuxComponent component) {
+		LinuxComponent[] components = getComponents(type);
+		if (components == null || code < 0 || code >= components.length)
+			throw new IllegalArgumentException("Event type " + type + " code " + code + " is out of range");
+		components[code] = component;
+	}
+
+	public final LinuxComponent get(int type, int code) {
+		LinuxComponent[] components = getComponents(type);
+		if (components == null || code < 0 || code >= components.length)
+			return null;
+		return components[code];
+	}
+}
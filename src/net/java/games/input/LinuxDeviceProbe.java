@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Probes a number of device nodes at the same time. Opening an event device
+ * and reading its capabilities takes many ioctls, most of the time is spent
+ * waiting on the kernel and the device, so probing the nodes concurrently
+ * shortens enumeration a lot when there are many of them. <br>
+ * The results are always returned in the order the nodes were given, 
+ * whichever probe finishes first.
+ */
+final class LinuxDeviceProbe {
+	/* Overrides the number of probe threads */
+	public final static String THREADS_PROPERTY = "net.java.games.input.linux.probeThreads";
+	/* Most probes wait on the device, so it is worth having a few more 
+	 * threads than processors, but not one per node */
+	private final static int MAX_THREADS = 8;
+
+	/** Probes a single device node */
+	public interface Probe {
+		/**
+		 * Probe one node. Called concurrently for different nodes.
+		 * @return the result for the node, or null
+		 */
+		Object probe(File node) throws Exception;
+	}
+
+	private final static Comparator EVENT_NUMBER_ORDER = new Comparator() {
+		public final int compare(Object o1, Object o2) {
+			String n1 = ((File)o1).getName();
+			String n2 = ((File)o2).getName();
+			int i1 = getNodeNumber(n1);
+			int i2 = getNodeNumber(n2);
+			if (i1 != i2)
+				return i1 < i2 ? -1 : 1;
+			return n1.compareTo(n2);
+		}
+	};
+
+	/**
+	 * The number at the end of a node name, e.g. 12 for event12, or -1 if
+	 * there isn't one.
+	 */
+	final static int getNodeNumber(String name) {
+		int start = name.length();
+		while (start > 0 && Character.isDigit(name.charAt(start - 1)))
+			start--;
+		if (start == name.length() || name.length() - start > 9)
+			return -1;
+		return Integer.parseInt(name.substring(start));
+	}
+
+	/**
+	 * Sort nodes by their number so event2 comes before event10. The 
+	 * directory listing order is not defined, this makes the controller 
+	 * order the same on every run.
+	 */
+	public final static void sortByNodeNumber(File[] nodes) {
+		Arrays.sort(nodes, EVENT_NUMBER_ORDER);
+	}
+
+	/**
+	 * The number of threads used to probe the given number of nodes.
+	 */
+	public final static int getThreadCount(int nodes) {
+		int threads = Integer.getInteger(THREADS_PROPERTY, Math.min(MAX_THREADS, 2*Runtime.getRuntime().availableProcessors())).intValue();
+		return Math.max(1, Math.min(threads, nodes));
+	}
+
+	/**
+	 * Probe all the nodes, using at most the given number of threads.
+	 * Failures are logged and give a null result.
+	 * @return the result of each probe, in the same order as the nodes
+	 */
+	public final static Object[] probeAll(File[] nodes, final Probe probe, int threads) {
+		Object[] results = new Object[nodes.length];
+		if (threads <= 1 || nodes.length <= 1) {
+			for (int i = 0; i < nodes.length; i++)
+				results[i] = probeNode(probe, nodes[i]);
+			return results;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count;
+			public final synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Linux device probe " + (count++));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List futures = new ArrayList(nodes.length);
+			for (int i = 0; i < nodes.length; i++) {
+				final File node = nodes[i];
+				futures.add(executor.submit(new Callable() {
+					public final Object call() {
+						return probeNode(probe, node);
+					}
+				}));
+			}
+			for (int i = 0; i < nodes.length; i++) {
+				try {
+					results[i] = ((Future)futures.get(i)).get();
+				} catch (ExecutionException e) {
+					ControllerEnvironment.logln("Failed to probe device (" + nodes[i] + "): " + e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	private final static Object probeNode(Probe probe, File node) {
+		try {
+			return probe.probe(node);
+		} catch (Exception e) {
+			ControllerEnvironment.logln("Failed to probe device (" + node + "): " + e.getMessage());
+			return null;
+		}
+	}
+}
@@ -26,23 +26,58 @@
 package net.java.games.input;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-abstract class LinuxDeviceTask {
+/**
+ * An operation run on the LinuxDeviceThread. The task is also the Future
+ * for its result. A task can be submitted again once it has completed.
+ */
+abstract class LinuxDeviceTask implements Future {
+	public final static int NEW = 0;
 	public final static int INPROGRESS = 1;
 	public final static int COMPLETED = 2;
 	public final static int FAILED = 3;
 	
 	private Object result;
 	private IOException exception;
-	private int state = INPROGRESS;
+	private volatile int state = NEW;
+	/* System.nanoTime() when the task was submitted */
+	private long submit_nanos;
 	
+	/**
+	 * Prepare the task to be queued.
+	 */
+	final void submitted(long nanos) {
+		synchronized (this) {
+			if (state == INPROGRESS)
+				throw new IllegalStateException("Task already submitted");
+			result = null;
+			exception = null;
+			state = INPROGRESS;
+		}
+		submit_nanos = nanos;
+	}
+
+	final long getSubmitNanos() {
+		return submit_nanos;
+	}
+
 	public final void doExecute() {
+		Object result = null;
+		IOException exception = null;
 		try {
 			result = execute();
-			state = COMPLETED;
 		} catch (IOException e) {
 			exception = e;
-			state = FAILED;
+		}
+		synchronized (this) {
+			this.result = result;
+			this.exception = exception;
+			state = exception == null ? COMPLETED : FAILED;
+			notifyAll();
 		}
 	}
 
@@ -57,6 +92,75 @@ abstract class LinuxDeviceTask {
 	public final int getState() {
 		return state;
 	}
+
+	/**
+	 * Wait for the task to finish.
+	 * @return the result of execute()
+	 * @throws IOException thrown by execute()
+	 */
+	public final Object waitForResult() throws IOException {
+		synchronized (this) {
+			boolean interrupted = false;
+			while (state == INPROGRESS) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		switch (state) {
+			case COMPLETED:
+				return result;
+			case FAILED:
+				throw exception;
+			default:
+				throw new IllegalStateException("Task not submitted");
+		}
+	}
+
+	/**
+	 * Tasks can't be cancelled, the device thread runs them in order.
+	 */
+	public final boolean cancel(boolean may_interrupt) {
+		return false;
+	}
+
+	public final boolean isCancelled() {
+		return false;
+	}
+
+	public final boolean isDone() {
+		int current = state;
+		return current == COMPLETED || current == FAILED;
+	}
+
+	public final synchronized Object get() throws InterruptedException, ExecutionException {
+		while (state == INPROGRESS)
+			wait();
+		return getOrThrow();
+	}
+
+	public final synchronized Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (state == INPROGRESS) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				throw new TimeoutException();
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return getOrThrow();
+	}
+
+	private final Object getOrThrow() throws ExecutionException {
+		if (state == FAILED)
+			throw new ExecutionException(exception);
+		if (state != COMPLETED)
+			throw new IllegalStateException("Task not submitted");
+		return result;
+	}
 	
 	protected abstract Object execute() throws IOException;
 }
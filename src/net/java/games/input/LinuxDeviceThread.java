@@ -26,8 +26,10 @@
 package net.java.games.input;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Linux doesn't have proper support for force feedback
@@ -38,54 +40,112 @@ import java.util.ArrayList;
  * (including the final device close that performs
  *  and implicit deletion of all the process' effects)
  * is run on a single thread.
+ * <p>
+ * Tasks are queued on a lock-free queue and run in the order they were
+ * submitted, so the operations on each device are always run in order. 
+ * submit() doesn't wait for the task, execute() waits for the result.
  */
 final class LinuxDeviceThread extends Thread {
-	private final List tasks = new ArrayList();
+	private final Queue tasks = new ConcurrentLinkedQueue();
+	/* ConcurrentLinkedQueue.size() walks the queue, so count separately */
+	private final AtomicInteger queue_depth = new AtomicInteger();
+	/* Set while the thread is about to park, submitters only unpark it then */
+	private volatile boolean waiting;
+	/* Updated by the submitters without locking, so it is only approximate */
+	private volatile int max_queue_depth;
+
+	/* Statistics, only written by the device thread */
+	private volatile long completed_tasks;
+	private volatile long total_wait_nanos;
+	private volatile long max_wait_nanos;
+	private volatile long total_run_nanos;
 	
 	public LinuxDeviceThread() {
+		super("Linux device thread");
 		setDaemon(true);
 		start();
 	}
 
-	public synchronized final void run() {
+	public final void run() {
 		while (true) {
-			if (!tasks.isEmpty()) {
-				LinuxDeviceTask task = (LinuxDeviceTask)tasks.remove(0);
+			LinuxDeviceTask task = (LinuxDeviceTask)tasks.poll();
+			if (task != null) {
+				queue_depth.decrementAndGet();
+				long start = System.nanoTime();
 				task.doExecute();
-				synchronized (task) {
-					task.notify();
-				}
+				long end = System.nanoTime();
+				long wait_nanos = start - task.getSubmitNanos();
+				total_wait_nanos += wait_nanos;
+				if (wait_nanos > max_wait_nanos)
+					max_wait_nanos = wait_nanos;
+				total_run_nanos += end - start;
+				completed_tasks++;
 			} else {
-				try {
-					wait();
-				} catch (InterruptedException e) {
-					// ignore
-				}
+				waiting = true;
+				if (tasks.isEmpty())
+					LockSupport.park(this);
+				waiting = false;
 			}
 		}
 	}
 
+	/**
+	 * Queue a task without waiting for it to run. The task is its own 
+	 * Future, and can be waited for with waitForResult().
+	 */
+	public final LinuxDeviceTask submit(LinuxDeviceTask task) {
+		task.submitted(System.nanoTime());
+		int depth = queue_depth.incrementAndGet();
+		if (depth > max_queue_depth)
+			max_queue_depth = depth;
+		tasks.offer(task);
+		if (waiting)
+			LockSupport.unpark(this);
+		return task;
+	}
+
+	/**
+	 * Queue a task and wait for its result.
+	 */
 	public final Object execute(LinuxDeviceTask task) throws IOException {
-		synchronized (this) {
-			tasks.add(task);
-			notify();
-		}
-		synchronized (task) {
-			while (task.getState() == LinuxDeviceTask.INPROGRESS) {
-				try {
-					task.wait();
-				} catch (InterruptedException e) {
-					// ignore
-				}
-			}
-		}
-		switch (task.getState()) {
-			case LinuxDeviceTask.COMPLETED:
-				return task.getResult();
-			case LinuxDeviceTask.FAILED:
-				throw task.getException();
-			default:
-				throw new RuntimeException("Invalid task state: " + task.getState());
+		if (Thread.currentThread() == this) {
+			// Waiting for ourselves would never finish
+			task.submitted(System.nanoTime());
+			task.doExecute();
+			return task.waitForResult();
 		}
+		return submit(task).waitForResult();
+	}
+
+	/** The number of tasks waiting to be run */
+	public final int getQueueDepth() {
+		return queue_depth.get();
+	}
+
+	/** The largest number of tasks that have been waiting at once */
+	public final int getMaxQueueDepth() {
+		return max_queue_depth;
+	}
+
+	/** The number of tasks run */
+	public final long getCompletedTasks() {
+		return completed_tasks;
+	}
+
+	/** The mean time in nanoseconds tasks have waited to be run */
+	public final long getMeanWaitNanos() {
+		long count = completed_tasks;
+		return count == 0 ? 0 : total_wait_nanos/count;
+	}
+
+	/** The longest time in nanoseconds a task has waited to be run */
+	public final long getMaxWaitNanos() {
+		return max_wait_nanos;
+	}
+
+	/** The mean time in nanoseconds taken to run a task */
+	public final long getMeanRunNanos() {
+		long count = completed_tasks;
+		return count == 0 ? 0 : total_run_nanos/count;
 	}
 }
@@ -28,6 +28,12 @@ package net.java.games.input;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.io.IOException;
 import java.io.File;
 import java.io.FilenameFilter;
@@ -38,12 +44,28 @@ import java.security.PrivilegedAction;
  * @author elias
  * @author Jeremy Booth (jeremy@newdawnsoftware.com)
  */
-public final class LinuxEnvironmentPlugin extends ControllerEnvironment {
+public class LinuxEnvironmentPlugin extends ControllerEnvironment {
 	private final static String LIBNAME = "jinput-linux";
 	private final static String POSTFIX64BIT = "64";
+	private final static String EVENT_DEVICE_PATH = "/dev/input";
+	/* Time between checks for added or removed event devices */
+	private final static long HOTPLUG_INTERVAL_MILLIS = 1000;
+	/* Times to try opening a new event device before ignoring it. udev may
+	 * not have given us access when the node first appears */
+	private final static int MAX_OPEN_ATTEMPTS = 3;
 	
-    private final Controller[] controllers;
-	private final List devices = new ArrayList();
+	/* Replaced, not modified, when controllers are added or removed */
+    private volatile Controller[] controllers;
+	private final List devices = new CopyOnWriteArrayList();
+	/* Maps the path of each event device seen to its EventNode. Only 
+	 * accessed during construction and then by the hotplug thread */
+	private final Map event_nodes = new HashMap();
+	/* Set when no event devices could be used and the legacy joystick 
+	 * devices were enumerated instead. Hotplug is only supported for event
+	 * devices */
+	private boolean joystick_fallback;
+	/* Capabilities of the devices seen before, null if disabled */
+	private final LinuxCapabilityCache capability_cache = LinuxCapabilityCache.open();
 	private final static LinuxDeviceThread device_thread = new LinuxDeviceThread();
     
 	static {
@@ -59,9 +81,61 @@ public final class LinuxEnvironmentPlugin extends ControllerEnvironment {
 		return device_thread.execute(task);
 	}
 
+	/**
+	 * Queue a task on the device thread without waiting for it.
+	 */
+	final static LinuxDeviceTask submit(LinuxDeviceTask task) {
+		return device_thread.submit(task);
+	}
+
+	/**
+	 * The number of force feedback and close operations waiting to be run 
+	 * on the device thread.
+	 */
+	public final static int getDeviceTaskQueueDepth() {
+		return device_thread.getQueueDepth();
+	}
+
+	/**
+	 * The largest number of operations that have been waiting at once.
+	 */
+	public final static int getMaxDeviceTaskQueueDepth() {
+		return device_thread.getMaxQueueDepth();
+	}
+
+	/**
+	 * The number of operations run on the device thread.
+	 */
+	public final static long getDeviceTaskCount() {
+		return device_thread.getCompletedTasks();
+	}
+
+	/**
+	 * The mean time in nanoseconds operations waited to be run.
+	 */
+	public final static long getMeanDeviceTaskWaitNanos() {
+		return device_thread.getMeanWaitNanos();
+	}
+
+	/**
+	 * The longest time in nanoseconds an operation has waited to be run.
+	 */
+	public final static long getMaxDeviceTaskWaitNanos() {
+		return device_thread.getMaxWaitNanos();
+	}
+
+	/**
+	 * The mean time in nanoseconds taken to run an operation.
+	 */
+	public final static long getMeanDeviceTaskRunNanos() {
+		return device_thread.getMeanRunNanos();
+	}
+
     public LinuxEnvironmentPlugin() {
 		this.controllers = enumerateControllers();
         ControllerEnvironment.logln("Linux plugin claims to have found " + controllers.length + " controllers");
+		if (!joystick_fallback)
+			new HotplugThread().start();
 		AccessController.doPrivileged(
 				new PrivilegedAction() {
 					public final Object run() {
@@ -181,6 +255,7 @@ public final class LinuxEnvironmentPlugin extends ControllerEnvironment {
 			 * to fallback to the legacy joystick interface.
 			 */
 			enumerateJoystickControllers(controllers);
+			joystick_fallback = controllers.size() > 0;
 		}
 		Controller[] controllers_array = new Controller[controllers.size()];
 		controllers.toArray(controllers_array);
@@ -330,42 +405,184 @@ public final class LinuxEnvironmentPlugin extends ControllerEnvironment {
 		});
 	}
 
-    private final void enumerateEventControllers(List controllers) {
-		final File dev = new File("/dev/input");
-		File[] event_device_files = listFilesPrivileged(dev, new FilenameFilter() {
+	private final static File[] listEventDeviceFiles() {
+		final File dev = new File(EVENT_DEVICE_PATH);
+		return listFilesPrivileged(dev, new FilenameFilter() {
 			public final boolean accept(File dir, String name) {
 				return name.startsWith("event");
 			}
 		});
+	}
+
+    private final void enumerateEventControllers(List controllers) {
+		File[] event_device_files = listEventDeviceFiles();
 		if (event_device_files == null)
 			return;
-		for (int i = 0; i < event_device_files.length; i++) {
-			File event_file = event_device_files[i];
-			try {
+		LinuxDeviceProbe.sortByNodeNumber(event_device_files);
+		for (int i = 0; i < event_device_files.length; i++)
+			event_nodes.put(getAbsolutePathPrivileged(event_device_files[i]), new EventNode());
+		/* Each probe only touches its own node, the results come back in 
+		 * node order */
+		Object[] probed = LinuxDeviceProbe.probeAll(event_device_files, new LinuxDeviceProbe.Probe() {
+			public final Object probe(File event_file) {
 				String path = getAbsolutePathPrivileged(event_file);
-				LinuxEventDevice device = new LinuxEventDevice(path);
-				try {
-					Controller controller = createControllerFromDevice(device);
-					if (controller != null) {
-						controllers.add(controller);
-						devices.add(device);
-					} else
-						device.close();
-				} catch (IOException e) {
-					ControllerEnvironment.logln("Failed to create Controller: " + e.getMessage());
+				EventNode node = (EventNode)event_nodes.get(path);
+				openEventNode(path, node);
+				return node.controller;
+			}
+		}, LinuxDeviceProbe.getThreadCount(event_device_files.length));
+		for (int i = 0; i < probed.length; i++) {
+			if (probed[i] != null)
+				controllers.add(probed[i]);
+		}
+		if (capability_cache != null)
+			capability_cache.save();
+    }
+
+	/**
+	 * Try to open an event device and create a controller for it. On success
+	 * the node holds the device, and the controller if the device is one we
+	 * can use.
+	 */
+	private final void openEventNode(String path, EventNode node) {
+		node.open_attempts++;
+		try {
+			LinuxEventDevice device = openEventDevice(path);
+			try {
+				Controller controller = createControllerFromDevice(device);
+				if (controller != null) {
+					node.device = device;
+					node.controller = controller;
+					devices.add(device);
+				} else {
 					device.close();
+					node.open_attempts = MAX_OPEN_ATTEMPTS;
 				}
 			} catch (IOException e) {
-				ControllerEnvironment.logln("Failed to open device (" + event_file + "): " + e.getMessage());
+				ControllerEnvironment.logln("Failed to create Controller: " + e.getMessage());
+				device.close();
 			}
+		} catch (IOException e) {
+			ControllerEnvironment.logln("Failed to open device (" + path + "): " + e.getMessage());
 		}
-    }
+	}
+
+	/**
+	 * Compare the event devices present with those already known. Only new
+	 * devices are opened, and the listeners are told about any controllers
+	 * added or removed. The kernel often gives a device that is unplugged 
+	 * and plugged back in between two scans the same node, so a known node
+	 * whose device has gone is treated as a removal followed by a new node.
+	 */
+	private final void rescanEventDevices() {
+		File[] event_device_files = listEventDeviceFiles();
+		if (event_device_files == null)
+			event_device_files = new File[0];
+		LinuxDeviceProbe.sortByNodeNumber(event_device_files);
+		Set present = new HashSet();
+		List added = new ArrayList();
+		List removed = new ArrayList();
+		for (int i = 0; i < event_device_files.length; i++) {
+			String path = getAbsolutePathPrivileged(event_device_files[i]);
+			present.add(path);
+			EventNode node = (EventNode)event_nodes.get(path);
+			if (node == null) {
+				node = new EventNode();
+				event_nodes.put(path, node);
+			} else if (node.device != null && !node.device.isConnected()) {
+				if (node.controller != null)
+					removed.add(node);
+				node = new EventNode();
+				event_nodes.put(path, node);
+			}
+			if (node.device == null && node.open_attempts < MAX_OPEN_ATTEMPTS) {
+				openEventNode(path, node);
+				if (node.controller != null)
+					added.add(node.controller);
+			}
+		}
+		Iterator it = event_nodes.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry entry = (Map.Entry)it.next();
+			if (!present.contains(entry.getKey())) {
+				EventNode node = (EventNode)entry.getValue();
+				if (node.controller != null)
+					removed.add(node);
+				it.remove();
+			}
+		}
+		if (added.isEmpty() && removed.isEmpty())
+			return;
+		if (capability_cache != null)
+			capability_cache.save();
+		List current = new ArrayList();
+		Controller[] old_controllers = controllers;
+		for (int i = 0; i < old_controllers.length; i++)
+			current.add(old_controllers[i]);
+		for (int i = 0; i < removed.size(); i++)
+			current.remove(((EventNode)removed.get(i)).controller);
+		current.addAll(added);
+		Controller[] new_controllers = new Controller[current.size()];
+		current.toArray(new_controllers);
+		controllers = new_controllers;
+		for (int i = 0; i < removed.size(); i++) {
+			EventNode node = (EventNode)removed.get(i);
+			fireControllerRemoved(node.controller);
+			devices.remove(node.device);
+			try {
+				node.device.close();
+			} catch (IOException e) {
+				ControllerEnvironment.logln("Failed to close device: " + e.getMessage());
+			}
+		}
+		for (int i = 0; i < added.size(); i++)
+			fireControllerAdded((Controller)added.get(i));
+	}
+
+	/* What we know about an event device node */
+	private final static class EventNode {
+		LinuxEventDevice device;
+		Controller controller;
+		int open_attempts;
+	}
+
+	/**
+	 * Watches /dev/input for event devices being added and removed. 
+	 * Listing the directory is cheap compared to opening the devices, so
+	 * the directory is simply checked at regular intervals.
+	 */
+	private final class HotplugThread extends Thread {
+		public HotplugThread() {
+			super("Linux hotplug");
+			setDaemon(true);
+		}
+
+		public final void run() {
+			while (true) {
+				try {
+					Thread.sleep(HOTPLUG_INTERVAL_MILLIS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				rescanEventDevices();
+			}
+		}
+	}
+
+	/**
+	 * Open an event device and read its capabilities. Overridden by plugins
+	 * that read the events differently.
+	 */
+	LinuxEventDevice openEventDevice(String path) throws IOException {
+		return new LinuxEventDevice(path, capability_cache);
+	}
 
 	private final class ShutdownHook extends Thread {
 		public final void run() {
-			for (int i = 0; i < devices.size(); i++) {
+			Iterator it = devices.iterator();
+			while (it.hasNext()) {
 				try {
-					LinuxDevice device = (LinuxDevice)devices.get(i);
+					LinuxDevice device = (LinuxDevice)it.next();
 					device.close();
 				} catch (IOException e) {
 					ControllerEnvironment.logln("Failed to close device: " + e.getMessage());
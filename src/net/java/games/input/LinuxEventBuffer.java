@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.IOException;
+
+/**
+ * A batch of evdev events read from a device in one go. The events are held
+ * in primitive arrays so filling and draining the buffer allocates nothing.
+ */
+final class LinuxEventBuffer {
+	private final long[] nanos;
+	private final int[] types;
+	private final int[] codes;
+	private final int[] values;
+	private final LinuxEvent scratch = new LinuxEvent();
+
+	private int count;
+	private int position;
+
+	public LinuxEventBuffer(int capacity) {
+		nanos = new long[capacity];
+		types = new int[capacity];
+		codes = new int[capacity];
+		values = new int[capacity];
+	}
+
+	public final int capacity() {
+		return values.length;
+	}
+
+	public final void clear() {
+		count = 0;
+		position = 0;
+	}
+
+	/**
+	 * True if there are unread events in the buffer.
+	 */
+	public final boolean hasNext() {
+		return position < count;
+	}
+
+	/** The number of events in the buffer */
+	final int size() {
+		return count;
+	}
+
+	final int getType(int index) {
+		return types[index];
+	}
+
+	final int getCode(int index) {
+		return codes[index];
+	}
+
+	final int getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Get the next unread event from the buffer.
+	 * @return false if all the events have been read
+	 */
+	public final boolean next(LinuxEvent linux_event) {
+		if (position == count)
+			return false;
+		linux_event.set(nanos[position], types[position], codes[position], values[position]);
+		position++;
+		return true;
+	}
+
+	final void add(long event_nanos, int type, int code, int value) {
+		nanos[count] = event_nanos;
+		types[count] = type;
+		codes[count] = code;
+		values[count] = value;
+		count++;
+	}
+
+	/**
+	 * Copy events from the arrays of a ring buffer.
+	 * @return the number of events copied
+	 */
+	final int addAll(long[] src_nanos, int[] src_types, int[] src_codes, int[] src_values, int offset, int length) {
+		length = Math.min(length, capacity() - count);
+		System.arraycopy(src_nanos, offset, nanos, count, length);
+		System.arraycopy(src_types, offset, types, count, length);
+		System.arraycopy(src_codes, offset, codes, count, length);
+		System.arraycopy(src_values, offset, values, count, length);
+		count += length;
+		return length;
+	}
+
+	/**
+	 * Fill the buffer from a device with the native library. Stops when the 
+	 * buffer is full or the device has no more events.
+	 * @return the number of events read
+	 */
+	final int readNative(long fd) throws IOException {
+		int start = count;
+		while (count < capacity() && LinuxEventDevice.nGetNextEvent(fd, scratch)) {
+			LinuxAxisDescriptor descriptor = scratch.getDescriptor();
+			add(scratch.getNanos(), descriptor.getType(), descriptor.getCode(), scratch.getValue());
+		}
+		return count - start;
+	}
+}
@@ -65,6 +65,24 @@ final class LinuxEventComponent {
 		}
 	}
 
+	/**
+	 * Create a component with a known range, without asking the device.
+	 */
+	LinuxEventComponent(LinuxEventDevice device, Component.Identifier identifier, boolean is_relative, int native_type, int native_code, int min, int max, int flat) {
+		this.device = device;
+		this.identifier = identifier;
+		if (native_type == NativeDefinitions.EV_KEY)
+			this.button_trait = LinuxNativeTypesMap.guessButtonTrait(native_code);
+		else
+			this.button_trait = Controller.Type.UNKNOWN;
+		this.is_relative = is_relative;
+		this.descriptor = new LinuxAxisDescriptor();
+		descriptor.set(native_type, native_code);
+		this.min = min;
+		this.max = max;
+		this.flat = flat;
+	}
+
 	public final LinuxEventDevice getDevice() {
 		return device;
 	}
@@ -109,6 +127,18 @@ final class LinuxEventComponent {
 		}
 	}
 
+	final int getMin() {
+		return min;
+	}
+
+	final int getMax() {
+		return max;
+	}
+
+	final int getFlat() {
+		return flat;
+	}
+
 	final float getDeadZone() {
 		return flat/(2f*(max - min));
 	}
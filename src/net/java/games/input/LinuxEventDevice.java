@@ -26,8 +26,6 @@
 package net.java.games.input;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -35,7 +33,7 @@ import java.util.ArrayList;
  * @author elias
  */
 final class LinuxEventDevice implements LinuxDevice {
-	private final Map component_map = new HashMap();
+	private final LinuxComponentTable component_table = new LinuxComponentTable();
 	private final Rumbler[] rumblers;
 	private final long fd;
 	private final String name;
@@ -43,17 +41,65 @@ final class LinuxEventDevice implements LinuxDevice {
 	private final List components;
 	private final Controller.Type type;
 
+	/* If set the events are read by this instead of through JNI */
+	private LinuxNIOEventReader nio_reader;
+
+	/* Number of events read from the device in one batch */
+	private final static int EVENT_BATCH = 64;
+
+	/* Batch of events being delivered to the controller. Only used by 
+	 * the thread polling the device */
+	private final LinuxEventBuffer event_buffer = new LinuxEventBuffer(EVENT_BATCH);
+
+	/* Scratch objects for reading events and the abs state, only used by
+	 * the thread polling the device so devices can be polled in parallel */
+	private final LinuxEvent scratch_event = new LinuxEvent();
+	private final LinuxAbsInfo scratch_abs_info = new LinuxAbsInfo();
+
+	/* Not in NativeDefinitions, the kernel headers it was generated from
+	 * are older than SYN_DROPPED */
+	private final static int SYN_DROPPED = 3;
+
+	/* The abs axis values, kept up to date from the events read so the 
+	 * axes don't need an EVIOCGABS ioctl each poll */
+	private final int[] abs_values = new int[NativeDefinitions.ABS_MAX + 1];
+	/* The codes of the device's abs axes */
+	private int[] abs_codes = new int[0];
+	/* Set when the kernel dropped events, the key and abs state must be
+	 * read again with ioctls */
+	private boolean resync_needed;
+
+	private long ioctl_calls;
+	private long read_syscalls;
+
+	/* Set if the rumblers could not be probed, so the cache doesn't 
+	 * remember the device as not having any */
+	private boolean rumble_probe_failed;
+
+	private long events_read;
+	private long read_calls;
+
 	/* Closed state variable that protects the validity of the file descriptor.
 	 *  Access to the closed state must be synchronized
 	 */
 	private boolean closed;
 
 	/* Access to the key_states array could be synchronized, but
-	 * it doesn't hurt to have multiple threads read/write from/to it
+	 * it doesn't hurt to have multiple threads read/write from/to it. 
+	 * Like abs_values it is kept up to date from the events read
 	 */
 	private final byte[] key_states = new byte[NativeDefinitions.KEY_MAX/8 + 1];
 	
     public LinuxEventDevice(String filename) throws IOException {
+		this(filename, null);
+	}
+
+	/**
+	 * Open an event device, using the capabilities in the cache if the
+	 * device is in it. Newly probed devices are added to the cache.
+	 * @param cache the cache, or null to always probe the device
+	 */
+    LinuxEventDevice(String filename, LinuxCapabilityCache cache) throws IOException {
 		long fd;
 		boolean detect_rumblers = true;
 		try {
@@ -66,18 +112,37 @@ final class LinuxEventDevice implements LinuxDevice {
 		try {
 			this.name = getDeviceName();
 			this.input_id = getDeviceInputID();
-			this.components = getDeviceComponents();
-			if (detect_rumblers)
-				this.rumblers = enumerateRumblers();
-			else
-				this.rumblers = new Rumbler[]{};
-			this.type = guessType();
+			byte[] evtype_bits = cache != null ? getEventTypeBits() : null;
+			LinuxCapabilityCache.Entry entry = cache != null ? cache.lookup(input_id, name, evtype_bits) : null;
+			if (entry != null) {
+				this.components = entry.createComponents(this);
+				if (!detect_rumblers)
+					this.rumblers = new Rumbler[]{};
+				else if (!entry.isRumbleKnown())
+					this.rumblers = enumerateRumblers();
+				else if (entry.hasRumble())
+					this.rumblers = new Rumbler[]{new LinuxRumbleFF(this)};
+				else
+					this.rumblers = new Rumbler[]{};
+				this.type = entry.getType();
+			} else {
+				this.components = getDeviceComponents();
+				if (detect_rumblers)
+					this.rumblers = enumerateRumblers();
+				else
+					this.rumblers = new Rumbler[]{};
+				this.type = guessType();
+				if (cache != null)
+					cache.put(input_id, name, evtype_bits, components, detect_rumblers ? getRumbleFlags() : 0, type);
+			}
+			this.abs_codes = getAbsCodes(components);
+			resync();
 		} catch (IOException e) {
 			close();
 			throw e;
 		}
     }
-	private final static native long nOpen(String filename, boolean rw) throws IOException;
+	final static native long nOpen(String filename, boolean rw) throws IOException;
 
 	public final Controller.Type getType() {
 		return type;
@@ -191,10 +256,18 @@ final class LinuxEventDevice implements LinuxDevice {
 			}
 		} catch (IOException e) {
 			ControllerEnvironment.logln("Failed to enumerate rumblers: " + e.getMessage());
+			rumble_probe_failed = true;
 		}
 		return (Rumbler[])rumblers.toArray(new Rumbler[]{});
 	}
 
+	/* The rumble flags for the capability cache */
+	private final int getRumbleFlags() {
+		if (rumble_probe_failed)
+			return 0;
+		return rumblers.length > 0 ? LinuxCapabilityCache.RUMBLE_KNOWN | LinuxCapabilityCache.HAS_RUMBLE : LinuxCapabilityCache.RUMBLE_KNOWN;
+	}
+
 	public final Rumbler[] getRumblers() {
 		return rumblers;
 	}
@@ -223,11 +296,11 @@ final class LinuxEventDevice implements LinuxDevice {
 	private final static native void nWriteEvent(long fd, int type, int code, int value) throws IOException;
 
 	public final void registerComponent(LinuxAxisDescriptor desc, LinuxComponent component) {
-		component_map.put(desc, component);
+		component_table.put(desc.getType(), desc.getCode(), component);
 	}
 
-	public final LinuxComponent mapDescriptor(LinuxAxisDescriptor desc) {
-		return (LinuxComponent)component_map.get(desc);
+	public final LinuxComponent mapEvent(int type, int code) {
+		return component_table.get(type, code);
 	}
 
 	public final Controller.PortType getPortType() throws IOException {
@@ -242,6 +315,22 @@ final class LinuxEventDevice implements LinuxDevice {
 		return nGetInputID(fd);
 	}
 	private final static native LinuxInputID nGetInputID(long fd) throws IOException;
+
+	/**
+	 * Check that the device this was opened on is still there. Once it is 
+	 * unplugged every ioctl fails with ENODEV, even if a new device has 
+	 * been given the same node since.
+	 */
+	public final synchronized boolean isConnected() {
+		if (closed)
+			return false;
+		try {
+			getDeviceInputID();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
 	
 	public final int getNumEffects() throws IOException {
 		return nGetNumEffects(fd);
@@ -253,11 +342,70 @@ final class LinuxEventDevice implements LinuxDevice {
 	}
 	private final static native int nGetVersion(long fd) throws IOException;
 
+	/**
+	 * Read the events with a LinuxNIOEventReader instead of the native
+	 * library. The reader is started and will be closed with the device.
+	 */
+	public final synchronized void setEventReader(LinuxNIOEventReader reader) throws IOException {
+		checkClosed();
+		this.nio_reader = reader;
+		reader.start();
+	}
+
 	public final synchronized boolean getNextEvent(LinuxEvent linux_event) throws IOException {
 		checkClosed();
+		if (nio_reader != null)
+			return nio_reader.getNextEvent(linux_event);
 		return nGetNextEvent(fd, linux_event);
 	}
-	private final static native boolean nGetNextEvent(long fd, LinuxEvent linux_event) throws IOException;
+	final static native boolean nGetNextEvent(long fd, LinuxEvent linux_event) throws IOException;
+
+	/**
+	 * Replace the contents of the buffer with as many events as the device
+	 * has queued, up to the capacity of the buffer.
+	 * @return the number of events read
+	 */
+	public final synchronized int readEvents(LinuxEventBuffer buffer) throws IOException {
+		checkClosed();
+		buffer.clear();
+		int count;
+		if (nio_reader != null)
+			count = nio_reader.getNextEvents(buffer);
+		else {
+			count = buffer.readNative(fd);
+			// One read per event, and a last one that found nothing
+			read_syscalls += count < buffer.capacity() ? count + 1 : count;
+		}
+		updateState(buffer);
+		events_read += count;
+		read_calls++;
+		return count;
+	}
+
+	/**
+	 * The buffer used to deliver this device's events to its controller.
+	 */
+	final LinuxEventBuffer getEventBuffer() {
+		return event_buffer;
+	}
+
+	final LinuxEvent getScratchEvent() {
+		return scratch_event;
+	}
+
+	/**
+	 * The number of events read from the device with readEvents.
+	 */
+	public final synchronized long getEventsRead() {
+		return events_read;
+	}
+
+	/**
+	 * The number of times readEvents has been called.
+	 */
+	public final synchronized long getReadCalls() {
+		return read_calls;
+	}
 	
 	public final synchronized void getAbsInfo(int abs_axis, LinuxAbsInfo abs_info) throws IOException {
 		checkClosed();
@@ -351,11 +499,96 @@ final class LinuxEventDevice implements LinuxDevice {
 	}
 	private final static native void nGetDeviceUsageBits(long fd, byte[] type_bits) throws IOException;
 
-	public final synchronized void pollKeyStates() throws IOException {
+	/**
+	 * Bring the key and abs axis state up to date. The state is kept from 
+	 * the events, so this normally only reads the events waiting, which 
+	 * are kept in the event buffer for the controller. Only after the 
+	 * kernel has dropped events is the state read again with ioctls.
+	 */
+	public final synchronized void pollState() throws IOException {
+		checkClosed();
+		if (resync_needed)
+			resync();
+		else if (!event_buffer.hasNext())
+			readEvents(event_buffer);
+	}
+
+	/* Read the whole key and abs state with ioctls */
+	private final synchronized void resync() throws IOException {
 		nGetKeyStates(fd, key_states);
+		ioctl_calls++;
+		for (int i = 0; i < abs_codes.length; i++) {
+			nGetAbsInfo(fd, abs_codes[i], scratch_abs_info);
+			abs_values[abs_codes[i]] = scratch_abs_info.getValue();
+			ioctl_calls++;
+		}
+		resync_needed = false;
 	}
 	private final static native void nGetKeyStates(long fd, byte[] states) throws IOException;
 
+	/* Apply the events just read to the key and abs state */
+	private final void updateState(LinuxEventBuffer buffer) {
+		for (int i = 0; i < buffer.size(); i++) {
+			int code = buffer.getCode(i);
+			switch (buffer.getType(i)) {
+				case NativeDefinitions.EV_KEY:
+					if (code >= 0 && code <= NativeDefinitions.KEY_MAX) {
+						if (buffer.getValue(i) != 0)
+							key_states[code/8] |= 1<<(code%8);
+						else
+							key_states[code/8] &= ~(1<<(code%8));
+					}
+					break;
+				case NativeDefinitions.EV_ABS:
+					if (code >= 0 && code <= NativeDefinitions.ABS_MAX)
+						abs_values[code] = buffer.getValue(i);
+					break;
+				case NativeDefinitions.EV_SYN:
+					if (code == SYN_DROPPED)
+						resync_needed = true;
+					break;
+			}
+		}
+	}
+
+	private final static int[] getAbsCodes(List components) {
+		int count = 0;
+		for (int i = 0; i < components.size(); i++) {
+			if (((LinuxEventComponent)components.get(i)).getDescriptor().getType() == NativeDefinitions.EV_ABS)
+				count++;
+		}
+		int[] codes = new int[count];
+		count = 0;
+		for (int i = 0; i < components.size(); i++) {
+			LinuxAxisDescriptor descriptor = ((LinuxEventComponent)components.get(i)).getDescriptor();
+			if (descriptor.getType() == NativeDefinitions.EV_ABS)
+				codes[count++] = descriptor.getCode();
+		}
+		return codes;
+	}
+
+	/**
+	 * The value of an abs axis, from the last event for the axis.
+	 */
+	public final int getAbsValue(int abs_axis) {
+		return abs_values[abs_axis];
+	}
+
+	/**
+	 * The number of ioctls made to read the key and abs state.
+	 */
+	public final synchronized long getIoctlCount() {
+		return ioctl_calls;
+	}
+
+	/**
+	 * The number of read system calls made by the poll thread. Events 
+	 * read by a LinuxNIOEventReader are read on its own thread.
+	 */
+	public final synchronized long getReadSyscallCount() {
+		return read_syscalls;
+	}
+
 	public final boolean isKeySet(int bit) {
 		return isBitSet(key_states, bit);
 	}
@@ -377,14 +610,23 @@ final class LinuxEventDevice implements LinuxDevice {
 		if (closed)
 			return;
 		closed = true;
-		LinuxEnvironmentPlugin.execute(new LinuxDeviceTask() {
+		if (nio_reader != null)
+			nio_reader.close();
+		/* Nothing uses the fd once closed is set, so there is no need to 
+		 * wait for the close */
+		LinuxEnvironmentPlugin.submit(new LinuxDeviceTask() {
 			protected final Object execute() throws IOException {
-				nClose(fd);
+				try {
+					nClose(fd);
+				} catch (IOException e) {
+					ControllerEnvironment.logln("Failed to close device: " + e.getMessage());
+					throw e;
+				}
 				return null;
 			}
 		});
 	}
-	private final static native void nClose(long fd) throws IOException;
+	final static native void nClose(long fd) throws IOException;
 
 	private final void checkClosed() throws IOException {
 		if (closed)
@@ -26,15 +26,30 @@
 package net.java.games.input;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author elias
  */
-abstract class LinuxForceFeedbackEffect implements Rumbler {
+abstract class LinuxForceFeedbackEffect implements AsyncRumbler {
+	/* Value of pending_intensity when no intensity is waiting, a NaN that
+	 * Float.floatToIntBits never returns */
+	private final static int NO_INTENSITY = 0x7fc00001;
+
 	private final LinuxEventDevice device;
 	private final int ff_id;
-	private final WriteTask write_task = new WriteTask();
 	private final UploadTask upload_task = new UploadTask();
+	/* The float bits of the latest intensity from rumbleAsync not yet applied */
+	private final AtomicInteger pending_intensity = new AtomicInteger(NO_INTENSITY);
+	/* The intensity the device has, only used on the device thread */
+	private float applied_intensity;
+
+	/* rumbleAsync can be called from any thread */
+	private final AtomicLong coalesced_count = new AtomicLong();
+	/* Only written on the device thread */
+	private volatile long skipped_count;
+	private volatile long applied_count;
 	
     public LinuxForceFeedbackEffect(LinuxEventDevice device) throws IOException {
 		this.device = device;
@@ -51,15 +66,35 @@ abstract class LinuxForceFeedbackEffect implements Rumbler {
 		try {
 			if (intensity > 0) {
 				upload_task.doUpload(ff_id, intensity);
-				write_task.write(1);
+				new WriteTask(1).submit();
 			} else {
-				write_task.write(0);
+				new WriteTask(0).submit();
 			}
 		} catch (IOException e) {
 			ControllerEnvironment.logln("Failed to rumble: " + e);
 		}
 	}
 
+	public final void rumbleAsync(float intensity) {
+		int previous = pending_intensity.getAndSet(Float.floatToIntBits(intensity));
+		if (previous == NO_INTENSITY)
+			LinuxEnvironmentPlugin.submit(new ApplyTask());
+		else
+			coalesced_count.incrementAndGet();
+	}
+
+	public final long getCoalescedCount() {
+		return coalesced_count.get();
+	}
+
+	public final long getSkippedCount() {
+		return skipped_count;
+	}
+
+	public final long getAppliedCount() {
+		return applied_count;
+	}
+
 	/*
 	 * Erase doesn't seem to be implemented on Logitech joysticks,
 	 * so we'll rely on the kernel cleaning up on device close
@@ -90,20 +125,61 @@ abstract class LinuxForceFeedbackEffect implements Rumbler {
 
 		protected final Object execute() throws IOException {
 			this.id = upload(id, intensity);
+			applied_intensity = intensity;
 			return null;
 		}
 	}
 
+	/* Sends the latest pending intensity, if it is not already applied. 
+	 * Runs on the device thread, so it can use the device directly */
+	private final class ApplyTask extends LinuxDeviceTask {
+		protected final Object execute() throws IOException {
+			int bits = pending_intensity.getAndSet(NO_INTENSITY);
+			if (bits == NO_INTENSITY)
+				return null;
+			float intensity = Float.intBitsToFloat(bits);
+			if (intensity == applied_intensity || (intensity <= 0 && applied_intensity <= 0)) {
+				skipped_count++;
+				return null;
+			}
+			try {
+				if (intensity > 0) {
+					upload(ff_id, intensity);
+					device.writeEvent(NativeDefinitions.EV_FF, ff_id, 1);
+				} else
+					device.writeEvent(NativeDefinitions.EV_FF, ff_id, 0);
+				applied_intensity = intensity;
+				applied_count++;
+			} catch (IOException e) {
+				ControllerEnvironment.logln("Failed to rumble: " + e);
+				throw e;
+			}
+			return null;
+		}
+	}
+
+	/* Starts or stops the effect. The write is queued behind the upload
+	 * and nothing needs its result, so it is not waited for */
 	private final class WriteTask extends LinuxDeviceTask {
-		private int value;
+		private final int value;
 
-		public final void write(int value) throws IOException {
+		public WriteTask(int value) {
 			this.value = value;
-			LinuxEnvironmentPlugin.execute(this);
+		}
+
+		public final void submit() {
+			LinuxEnvironmentPlugin.submit(this);
 		}
 
 		protected final Object execute() throws IOException {
-			device.writeEvent(NativeDefinitions.EV_FF, ff_id, value);
+			try {
+				device.writeEvent(NativeDefinitions.EV_FF, ff_id, value);
+				if (value == 0)
+					applied_intensity = 0;
+			} catch (IOException e) {
+				ControllerEnvironment.logln("Failed to rumble: " + e);
+				throw e;
+			}
 			return null;
 		}
 	}
@@ -63,6 +63,10 @@ final class LinuxKeyboard extends Keyboard {
 	}
 
 	public final void pollDevice() throws IOException {
-		device.pollKeyStates();
+		device.pollState();
+	}
+
+	public final EventClock getEventClock() {
+		return EventClock.WALL_CLOCK;
 	}
 }
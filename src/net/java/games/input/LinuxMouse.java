@@ -59,10 +59,14 @@ final class LinuxMouse extends Mouse {
 	}
 
 	public final void pollDevice() throws IOException {
-		device.pollKeyStates();
+		device.pollState();
 	}
 
 	protected final boolean getNextDeviceEvent(Event event) throws IOException {
 		return LinuxControllers.getNextDeviceEvent(event, device);
 	}
+
+	public final EventClock getEventClock() {
+		return EventClock.WALL_CLOCK;
+	}
 }
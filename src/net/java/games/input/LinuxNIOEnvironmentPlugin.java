@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.IOException;
+
+/** Environment plugin for linux that reads the event devices with 
+ * java.nio instead of one JNI call per event. The device capabilities are 
+ * still read with the native ioctls when the devices are opened, and the 
+ * controllers and components are the same as LinuxEnvironmentPlugin's.
+ * 
+ * Selected by setting the system property 
+ * ControllerEnvironment.LINUX_NIO_PROPERTY to "true".
+ */
+public final class LinuxNIOEnvironmentPlugin extends LinuxEnvironmentPlugin {
+	/* Number of decoded events buffered for each device */
+	private final static int EVENT_CAPACITY = 1024;
+
+	final LinuxEventDevice openEventDevice(String path) throws IOException {
+		LinuxEventDevice device = super.openEventDevice(path);
+		try {
+			device.setEventReader(new LinuxNIOEventReader(path, EVENT_CAPACITY));
+		} catch (IOException e) {
+			device.close();
+			throw e;
+		}
+		return device;
+	}
+}
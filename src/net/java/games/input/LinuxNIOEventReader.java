@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads the event stream of a /dev/input/event* node in plain Java.
+ * Each read() from the FileChannel fills a direct ByteBuffer with as many
+ * struct input_event records as the kernel has queued, and these are decoded
+ * into a ring of primitive arrays that the polling thread drains through
+ * getNextEvent. Nothing is allocated once the reader is running.
+ *
+ * FileChannels can't be made non-blocking, so the reads are done on a 
+ * daemon thread that is parked in read() while the device is idle.
+ */
+final class LinuxNIOEventReader implements Runnable {
+	/* struct input_event is a struct timeval followed by u16 type, u16 code and s32 value */
+	private final static int EVENT_SIZE = ControllerEnvironment.wordsize == 32 ? 16 : 24;
+	private final static int READ_EVENTS = 64;
+	private final static long FULL_PARK_NANOS = 1000000L;
+
+	private final String filename;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+
+	private final int mask;
+	private final long[] nanos;
+	private final int[] types;
+	private final int[] codes;
+	private final int[] values;
+
+	/* Written only by the reader thread */
+	private final AtomicLong tail = new AtomicLong();
+	/* Written only by the polling thread */
+	private final AtomicLong head = new AtomicLong();
+
+	private volatile boolean closed;
+
+	/**
+	 * @param filename the event device to read
+	 * @param capacity number of decoded events that can be held, rounded up to a power of two
+	 */
+	public LinuxNIOEventReader(String filename, int capacity) throws IOException {
+		this.filename = filename;
+		this.channel = new FileInputStream(filename).getChannel();
+		this.buffer = ByteBuffer.allocateDirect(EVENT_SIZE*READ_EVENTS).order(ByteOrder.nativeOrder());
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.mask = size - 1;
+		this.nanos = new long[size];
+		this.types = new int[size];
+		this.codes = new int[size];
+		this.values = new int[size];
+	}
+
+	/**
+	 * Start the thread that reads from the device.
+	 */
+	public final void start() {
+		Thread thread = new Thread(this, "evdev reader " + filename);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public final void run() {
+		try {
+			while (!closed && read() >= 0)
+				;
+		} catch (ClosedChannelException e) {
+			// closed while blocked in read
+		} catch (IOException e) {
+			if (!closed)
+				ControllerEnvironment.logln("Failed to read from " + filename + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Do a single read from the device and decode all the events it returned.
+	 * Blocks if the device has no events queued.
+	 * @return the number of events decoded or -1 at end of stream
+	 */
+	final int read() throws IOException {
+		buffer.clear();
+		int bytes = channel.read(buffer);
+		if (bytes < 0)
+			return -1;
+		buffer.flip();
+		int count = 0;
+		while (buffer.remaining() >= EVENT_SIZE) {
+			long seconds;
+			long microseconds;
+			if (EVENT_SIZE == 16) {
+				seconds = buffer.getInt();
+				microseconds = buffer.getInt();
+			} else {
+				seconds = buffer.getLong();
+				microseconds = buffer.getLong();
+			}
+			int type = buffer.getShort() & 0xffff;
+			int code = buffer.getShort() & 0xffff;
+			int value = buffer.getInt();
+			push((seconds*1000000 + microseconds)*1000, type, code, value);
+			count++;
+		}
+		return count;
+	}
+
+	private final void push(long event_nanos, int type, int code, int value) {
+		long t = tail.get();
+		/* Wait for the polling thread rather than lose events. If it
+		 * never catches up the kernel will drop them and send SYN_DROPPED */
+		while (t - head.get() > mask && !closed)
+			LockSupport.parkNanos(FULL_PARK_NANOS);
+		int index = (int)t & mask;
+		nanos[index] = event_nanos;
+		types[index] = type;
+		codes[index] = code;
+		values[index] = value;
+		tail.lazySet(t + 1);
+	}
+
+	/**
+	 * Get the next event read from the device, called by the polling thread.
+	 * @return false if there are no more events
+	 */
+	public final boolean getNextEvent(LinuxEvent linux_event) {
+		long h = head.get();
+		if (h == tail.get())
+			return false;
+		int index = (int)h & mask;
+		linux_event.set(nanos[index], types[index], codes[index], values[index]);
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	/**
+	 * Move as many events as will fit from the ring into a buffer, called by
+	 * the polling thread.
+	 * @return the number of events moved
+	 */
+	public final int getNextEvents(LinuxEventBuffer events) {
+		long h = head.get();
+		int available = (int)(tail.get() - h);
+		int moved = 0;
+		while (moved < available) {
+			int index = (int)(h + moved) & mask;
+			int length = Math.min(available - moved, mask + 1 - index);
+			int copied = events.addAll(nanos, types, codes, values, index, length);
+			moved += copied;
+			if (copied < length)
+				break;
+		}
+		head.lazySet(h + moved);
+		return moved;
+	}
+
+	public final void close() throws IOException {
+		closed = true;
+		channel.close();
+	}
+}
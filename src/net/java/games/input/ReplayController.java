@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A controller rebuilt from an event log. The replay environment hands it
+ * the events that are due as they are read from the log, and it passes 
+ * them through the normal poll and event queue path when it is polled.
+ */
+final class ReplayController extends AbstractController {
+	private final ReplayEnvironmentPlugin environment;
+	private final Type type;
+
+	/* Events handed over by the environment, guarded by this.pending_lock */
+	private final Object pending_lock = new Object();
+	private int[] pending_components = new int[64];
+	private float[] pending_values = new float[64];
+	private long[] pending_nanos = new long[64];
+	private int pending_count;
+
+	/* Events taken for the current poll, only used by the polling thread */
+	private int[] poll_components = new int[64];
+	private float[] poll_values = new float[64];
+	private long[] poll_nanos = new long[64];
+	private int poll_count;
+	private int poll_next;
+
+	ReplayController(ReplayEnvironmentPlugin environment, String name, Type type, Component[] components) {
+		super(name, components, new Controller[]{}, new Rumbler[]{});
+		this.environment = environment;
+		this.type = type;
+	}
+
+	public final Type getType() {
+		return type;
+	}
+
+	/**
+	 * Hand over an event that is now due. Called by the environment.
+	 */
+	final void addEvent(int component_index, float value, long nanos) {
+		synchronized (pending_lock) {
+			if (pending_count == pending_components.length) {
+				int size = pending_count*2;
+				pending_components = Arrays.copyOf(pending_components, size);
+				pending_values = Arrays.copyOf(pending_values, size);
+				pending_nanos = Arrays.copyOf(pending_nanos, size);
+			}
+			pending_components[pending_count] = component_index;
+			pending_values[pending_count] = value;
+			pending_nanos[pending_count] = nanos;
+			pending_count++;
+		}
+	}
+
+	protected final void pollDevice() throws IOException {
+		environment.advance();
+		int[] components = poll_components;
+		float[] values = poll_values;
+		long[] nanos = poll_nanos;
+		/* Swap the pending events into the poll arrays, so the environment
+		 * can carry on adding while they are processed */
+		synchronized (pending_lock) {
+			poll_components = pending_components;
+			poll_values = pending_values;
+			poll_nanos = pending_nanos;
+			poll_count = pending_count;
+			pending_components = components;
+			pending_values = values;
+			pending_nanos = nanos;
+			pending_count = 0;
+		}
+		poll_next = 0;
+		Component[] all = getComponents();
+		for (int i = 0; i < poll_count; i++) {
+			ReplayComponent component = (ReplayComponent)all[poll_components[i]];
+			if (!component.isRelative())
+				component.setValue(poll_values[i]);
+		}
+	}
+
+	protected final boolean getNextDeviceEvent(Event event) throws IOException {
+		if (poll_next == poll_count)
+			return false;
+		Component component = getComponents()[poll_components[poll_next]];
+		event.set(component, poll_values[poll_next], poll_nanos[poll_next]);
+		poll_next++;
+		return true;
+	}
+}
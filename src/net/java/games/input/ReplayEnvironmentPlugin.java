@@ -0,0 +1,293 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A controller environment that replays a log written by EventRecorder
+ * instead of reading real devices. <br>
+ * The controllers and components are rebuilt from the descriptions in the
+ * log, and the events are fed through the normal poll and event queue path
+ * when the time they happened comes round again. Controllers that were 
+ * connected during the recording are added, with the usual controller 
+ * listener events, when the replay reaches them. The listeners are called
+ * from a thread of their own, as the Linux hotplug thread calls them, and
+ * not from the poll that reached the controller, so they are free to take
+ * locks the polling thread may be waiting for. <br>
+ * Time is taken from a ReplayClock and starts when a controller is first
+ * polled. With ReplayClock.SYSTEM the log is replayed in real time, or 
+ * faster with setSpeed, and with a ManualReplayClock it is stepped 
+ * through as the clock is advanced. Event times are translated to the 
+ * clock, so with ReplayClock.SYSTEM they are System.nanoTime() values. <br>
+ * Set the REPLAY_PROPERTY system property to the log file to have
+ * ControllerEnvironment.getEnvironment() replay it, or construct a plugin
+ * and pass it to ControllerEnvironment.setEnvironment.
+ */
+public final class ReplayEnvironmentPlugin extends ControllerEnvironment {
+	/** Replay speed used when created through REPLAY_PROPERTY, defaults to 1 */
+	public final static String SPEED_PROPERTY = "net.java.games.input.replay.speed";
+
+	private final static Controller.Type[] TYPES = {
+		Controller.Type.UNKNOWN, Controller.Type.MOUSE, Controller.Type.KEYBOARD, Controller.Type.FINGERSTICK,
+		Controller.Type.GAMEPAD, Controller.Type.HEADTRACKER, Controller.Type.RUDDER, Controller.Type.STICK,
+		Controller.Type.TRACKBALL, Controller.Type.TRACKPAD, Controller.Type.WHEEL
+	};
+
+	/* Identifier name to identifier, for each identifier class */
+	private final static Map axis_ids = getIdentifiers(Component.Identifier.Axis.class);
+	private final static Map button_ids = getIdentifiers(Component.Identifier.Button.class);
+	private final static Map key_ids = getIdentifiers(Component.Identifier.Key.class);
+
+	private final EventLogReader reader;
+	private final ReplayClock clock;
+	private final List controllers = new ArrayList();
+	private volatile Controller[] controller_array;
+	/* Controllers by their number in the log */
+	private ReplayController[] controllers_by_id = new ReplayController[8];
+
+	private double speed = 1;
+	/* The clock time the replay position was last set, and the position */
+	private long clock_start;
+	private long replay_start;
+	private boolean started;
+
+	/* The current record has been read but is not due yet */
+	private int pending_tag;
+	/* Log time of the first event */
+	private long first_nanos;
+	private boolean seen_event;
+	private long event_count;
+
+	/* Controllers reached by advance() that the listeners have not been 
+	 * told about yet */
+	private final BlockingQueue added_controllers = new LinkedBlockingQueue();
+	private Thread notify_thread;
+
+	/**
+	 * Replay a log in real time.
+	 */
+	public ReplayEnvironmentPlugin(File log) throws IOException {
+		this(log, ReplayClock.SYSTEM);
+	}
+
+	/**
+	 * Replay a log driven by the given clock.
+	 */
+	public ReplayEnvironmentPlugin(File log, ReplayClock clock) throws IOException {
+		this.reader = new EventLogReader(log);
+		this.clock = clock;
+		/* The controllers recorded before the first event are there from the start */
+		while (true) {
+			int tag = reader.next();
+			if (tag != EventRecorder.CONTROLLER_RECORD) {
+				pending_tag = tag;
+				break;
+			}
+			createController();
+		}
+		controller_array = toArray(controllers);
+	}
+
+	public final Controller[] getControllers() {
+		return controller_array;
+	}
+
+	/**
+	 * Set how many times faster than real time the log is replayed.
+	 */
+	public final synchronized void setSpeed(double speed) {
+		if (!(speed > 0))
+			throw new IllegalArgumentException("The speed must be positive");
+		if (started) {
+			long now = clock.nanoTime();
+			replay_start = getReplayTime(now);
+			clock_start = now;
+		}
+		this.speed = speed;
+	}
+
+	public final synchronized double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Whether every event in the log has been replayed.
+	 */
+	public final synchronized boolean isFinished() {
+		return pending_tag == EventRecorder.END_RECORD;
+	}
+
+	/**
+	 * The number of events replayed so far.
+	 */
+	public final synchronized long getReplayedEventCount() {
+		return event_count;
+	}
+
+	private final long getReplayTime(long now) {
+		return replay_start + (long)((now - clock_start)*speed);
+	}
+
+	/**
+	 * Hand every event that is now due to its controller. Called by the 
+	 * controllers when they are polled.
+	 */
+	final synchronized void advance() throws IOException {
+		long now = clock.nanoTime();
+		if (!started) {
+			started = true;
+			clock_start = now;
+		}
+		long replay_time = getReplayTime(now);
+		while (pending_tag != EventRecorder.END_RECORD) {
+			if (pending_tag == EventRecorder.CONTROLLER_RECORD) {
+				Controller controller = createController();
+				controller_array = toArray(controllers);
+				notifyAdded(controller);
+			} else {
+				if (!seen_event) {
+					seen_event = true;
+					first_nanos = reader.event_nanos;
+				}
+				long due = reader.event_nanos - first_nanos;
+				if (due > replay_time)
+					return;
+				int id = reader.controller_id;
+				ReplayController controller = id < controllers_by_id.length ? controllers_by_id[id] : null;
+				if (controller == null)
+					throw new IOException("Event for unknown controller " + reader.controller_id);
+				/* The time the event is due on the clock */
+				long nanos = clock_start + (long)((due - replay_start)/speed);
+				controller.addEvent(reader.component_index, reader.value, nanos);
+				event_count++;
+			}
+			pending_tag = reader.next();
+		}
+	}
+
+	/* Have the notify thread tell the listeners, once the poll that called
+	 * advance() has let go of its locks */
+	private final void notifyAdded(Controller controller) {
+		if (notify_thread == null) {
+			notify_thread = new NotifyThread();
+			notify_thread.start();
+		}
+		added_controllers.add(controller);
+	}
+
+	private final Controller createController() {
+		int count = reader.component_names.length;
+		Component[] components = new Component[count];
+		for (int i = 0; i < count; i++) {
+			int flags = reader.component_flags[i];
+			Component.Identifier id = getIdentifier(reader.identifier_names[i], flags);
+			components[i] = new ReplayComponent(reader.component_names[i], id, 
+					(flags & EventRecorder.FLAG_ANALOG) != 0, (flags & EventRecorder.FLAG_RELATIVE) != 0);
+		}
+		ReplayController controller = new ReplayController(this, reader.name, getType(reader.type), components);
+		controllers.add(controller);
+		int id = reader.controller_id;
+		if (id >= controllers_by_id.length)
+			controllers_by_id = Arrays.copyOf(controllers_by_id, Math.max(id + 1, controllers_by_id.length*2));
+		controllers_by_id[id] = controller;
+		return controller;
+	}
+
+	private final static Controller[] toArray(List list) {
+		Controller[] array = new Controller[list.size()];
+		list.toArray(array);
+		return array;
+	}
+
+	private final static Controller.Type getType(String name) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].toString().equals(name))
+				return TYPES[i];
+		}
+		return Controller.Type.UNKNOWN;
+	}
+
+	/* Find the identifier with the name, creating it if it is not one of
+	 * the standard ones */
+	private final static Component.Identifier getIdentifier(String name, int flags) {
+		if ((flags & EventRecorder.FLAG_AXIS) != 0) {
+			Component.Identifier id = (Component.Identifier)axis_ids.get(name);
+			return id != null ? id : new Component.Identifier.Axis(name);
+		} else if ((flags & EventRecorder.FLAG_KEY) != 0) {
+			Component.Identifier id = (Component.Identifier)key_ids.get(name);
+			return id != null ? id : new Component.Identifier.Key(name);
+		} else {
+			Component.Identifier id = (Component.Identifier)button_ids.get(name);
+			return id != null ? id : new Component.Identifier.Button(name);
+		}
+	}
+
+	private final class NotifyThread extends Thread {
+		public NotifyThread() {
+			super("Replay hotplug");
+			setDaemon(true);
+		}
+
+		public final void run() {
+			while (true) {
+				try {
+					fireControllerAdded((Controller)added_controllers.take());
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	private final static Map getIdentifiers(Class id_class) {
+		Map ids = new HashMap();
+		Field[] fields = id_class.getFields();
+		for (int i = 0; i < fields.length; i++) {
+			int modifiers = fields[i].getModifiers();
+			if (!Modifier.isStatic(modifiers) || !id_class.isAssignableFrom(fields[i].getType()))
+				continue;
+			try {
+				Component.Identifier id = (Component.Identifier)fields[i].get(null);
+				if (!ids.containsKey(id.getName()))
+					ids.put(id.getName(), id);
+			} catch (IllegalAccessException e) {
+				// public fields
+			}
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+/**
+ * A controller that makes up events at a set rate. Each time it is polled
+ * it makes the events that are due since the last poll, spread evenly over
+ * that time, and passes them through the normal poll and event queue path.
+ * The components take turns to get an event and the SyntheticInput decides
+ * the values. The events that get into the event queue are counted 
+ * separately from the events made.
+ */
+final class SyntheticController extends AbstractController {
+	/* Events not made because polls were too far apart are dropped above this */
+	private final static int MAX_EVENTS_PER_POLL = 1 << 16;
+
+	private final int id;
+	private final SyntheticInput input;
+	private volatile double rate;
+
+	private long first_poll_nanos = -1;
+	private long last_poll_nanos;
+	/* The fraction of an event due at the last poll */
+	private double carry;
+	private int next_component;
+	private volatile long event_count;
+	private volatile long skipped_count;
+	private volatile long queued_count;
+	private volatile long elapsed_nanos;
+
+	/* Events made for the current poll */
+	private int[] poll_components = new int[64];
+	private float[] poll_values = new float[64];
+	private long[] poll_nanos = new long[64];
+	private int poll_count;
+	private int poll_next;
+
+	SyntheticController(String name, int id, Component[] components, SyntheticInput input, double rate) {
+		super(name, components, new Controller[]{}, new Rumbler[]{});
+		this.id = id;
+		this.input = input;
+		this.rate = rate;
+	}
+
+	public final Type getType() {
+		return Type.GAMEPAD;
+	}
+
+	final void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	final double getRate() {
+		return rate;
+	}
+
+	/**
+	 * The number of events made since the first poll.
+	 */
+	final long getEventCount() {
+		return event_count;
+	}
+
+	/**
+	 * The number of events added to the event queue, leaving out the events
+	 * the queue dropped or merged and those poll() ignored because they
+	 * did not change the value.
+	 */
+	final long getQueuedCount() {
+		return queued_count;
+	}
+
+	/**
+	 * The number of events that were due but were dropped because the
+	 * controller was not polled often enough.
+	 */
+	final long getSkippedCount() {
+		return skipped_count;
+	}
+
+	/**
+	 * Time from the first poll to the last, in nanoseconds.
+	 */
+	final long getElapsedNanos() {
+		return elapsed_nanos;
+	}
+
+	public final EventClock getEventClock() {
+		return EventClock.NANO_TIME;
+	}
+
+	public final synchronized boolean poll() {
+		/* The queue is only replaced while holding the lock, so it is the 
+		 * same queue before and after */
+		EventQueue queue = getEventQueue();
+		long added = queue.getAddedCount();
+		boolean polled = super.poll();
+		queued_count += queue.getAddedCount() - added;
+		return polled;
+	}
+
+	protected final void pollDevice() {
+		long now = System.nanoTime();
+		poll_count = 0;
+		poll_next = 0;
+		if (first_poll_nanos == -1) {
+			first_poll_nanos = now;
+			last_poll_nanos = now;
+			return;
+		}
+		long interval = now - last_poll_nanos;
+		double due = interval*rate/1000000000d + carry;
+		long count = (long)due;
+		carry = due - count;
+		if (count > MAX_EVENTS_PER_POLL) {
+			skipped_count += count - MAX_EVENTS_PER_POLL;
+			count = MAX_EVENTS_PER_POLL;
+		}
+		if (count > poll_components.length) {
+			int size = Integer.highestOneBit((int)count) << 1;
+			poll_components = new int[size];
+			poll_values = new float[size];
+			poll_nanos = new long[size];
+		}
+		Component[] components = getComponents();
+		for (int i = 0; i < count; i++) {
+			int index = next_component;
+			next_component = (next_component + 1) % components.length;
+			SyntheticComponent component = (SyntheticComponent)components[index];
+			long nanos = last_poll_nanos + interval*(i + 1)/count;
+			float value = input.nextValue(id, component, index, component.getValue(), nanos);
+			component.setValue(value);
+			poll_components[i] = index;
+			poll_values[i] = value;
+			poll_nanos[i] = nanos;
+		}
+		poll_count = (int)count;
+		event_count += count;
+		last_poll_nanos = now;
+		elapsed_nanos = now - first_poll_nanos;
+	}
+
+	protected final boolean getNextDeviceEvent(Event event) {
+		if (poll_next == poll_count)
+			return false;
+		event.set(getComponents()[poll_components[poll_next]], poll_values[poll_next], poll_nanos[poll_next]);
+		poll_next++;
+		return true;
+	}
+}
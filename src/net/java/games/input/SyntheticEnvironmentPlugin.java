@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2003 Jeremy Booth (jeremy@newdawnsoftware.com)
+ *
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this 
+ * list of conditions and the following disclaimer. Redistributions in binary 
+ * form must reproduce the above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. 
+ * The name of the author may not be used to endorse or promote products derived
+ * from this software without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO 
+ * EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ */
+package net.java.games.input;
+
+import java.util.Random;
+
+/**
+ * A controller environment of synthetic controllers, for load testing 
+ * without devices. Each controller has a number of absolute axes, buttons,
+ * POV hats and relative axes and makes events at a set rate per second 
+ * while it is polled, with values from a SyntheticInput. <br>
+ * Set the SYNTHETIC_PROPERTY system property to the number of controllers
+ * to have ControllerEnvironment.getEnvironment() use this environment, or
+ * construct one and pass it to ControllerEnvironment.setEnvironment. <br>
+ * A controller makes the events that were due since its last poll, however
+ * long ago that was, but only the events that get into its event queue 
+ * count towards the achieved rate. Events are lost when the queue is full 
+ * and drops them, and when poll() finds they don't change the value, e.g. 
+ * an axis held at its limit. Compare getAchievedEventRate with 
+ * getRequestedEventRate to see how much of the load gets through.
+ */
+public final class SyntheticEnvironmentPlugin extends ControllerEnvironment {
+	/** Events per second per controller when created through SYNTHETIC_PROPERTY, defaults to 1000 */
+	public final static String RATE_PROPERTY = "net.java.games.input.synthetic.rate";
+
+	private final static Component.Identifier.Axis[] AXIS_IDS = {
+		Component.Identifier.Axis.X, Component.Identifier.Axis.Y, Component.Identifier.Axis.Z, 
+		Component.Identifier.Axis.RX, Component.Identifier.Axis.RY, Component.Identifier.Axis.RZ
+	};
+
+	private final SyntheticController[] controllers;
+
+	/**
+	 * Create controllers with 6 axes, 16 buttons, 1 hat and 2 relative axes
+	 * making random walk input.
+	 * @param num_controllers the number of controllers
+	 * @param rate events per second per controller
+	 */
+	public SyntheticEnvironmentPlugin(int num_controllers, double rate) {
+		this(num_controllers, 6, 16, 1, 2, rate, randomWalk(1));
+	}
+
+	/**
+	 * @param num_controllers the number of controllers
+	 * @param num_axes absolute axes per controller
+	 * @param num_buttons buttons per controller
+	 * @param num_hats POV hats per controller
+	 * @param num_relative_axes relative axes per controller
+	 * @param rate events per second per controller
+	 * @param input decides the values of the events
+	 */
+	public SyntheticEnvironmentPlugin(int num_controllers, int num_axes, int num_buttons, int num_hats, int num_relative_axes, double rate, SyntheticInput input) {
+		if (num_axes + num_buttons + num_hats + num_relative_axes == 0)
+			throw new IllegalArgumentException("The controllers need at least one component");
+		controllers = new SyntheticController[num_controllers];
+		for (int i = 0; i < num_controllers; i++) {
+			Component[] components = createComponents(num_axes, num_buttons, num_hats, num_relative_axes);
+			controllers[i] = new SyntheticController("Synthetic " + i, i, components, input, rate);
+		}
+	}
+
+	private final static Component[] createComponents(int num_axes, int num_buttons, int num_hats, int num_relative_axes) {
+		Component[] components = new Component[num_axes + num_buttons + num_hats + num_relative_axes];
+		int next = 0;
+		for (int i = 0; i < num_axes; i++) {
+			Component.Identifier id = i < AXIS_IDS.length ? AXIS_IDS[i] : Component.Identifier.Axis.SLIDER;
+			components[next++] = new SyntheticComponent("Axis " + i, id, true, false);
+		}
+		for (int i = 0; i < num_buttons; i++)
+			components[next++] = new SyntheticComponent("Button " + i, getButtonID(i), false, false);
+		for (int i = 0; i < num_hats; i++)
+			components[next++] = new SyntheticComponent("Hat " + i, Component.Identifier.Axis.POV, false, false);
+		for (int i = 0; i < num_relative_axes; i++) {
+			Component.Identifier id = (i & 1) == 0 ? Component.Identifier.Axis.X : Component.Identifier.Axis.Y;
+			components[next++] = new SyntheticComponent("Relative " + i, id, true, true);
+		}
+		return components;
+	}
+
+	private final static Component.Identifier getButtonID(int i) {
+		try {
+			return (Component.Identifier)Component.Identifier.Button.class.getField("_" + i).get(null);
+		} catch (Exception e) {
+			return new Component.Identifier.Button(String.valueOf(i));
+		}
+	}
+
+	public final Controller[] getControllers() {
+		Controller[] copy = new Controller[controllers.length];
+		System.arraycopy(controllers, 0, copy, 0, controllers.length);
+		return copy;
+	}
+
+	/**
+	 * Set the number of events per second made by every controller.
+	 */
+	public final void setEventRate(double rate) {
+		for (int i = 0; i < controllers.length; i++)
+			controllers[i].setRate(rate);
+	}
+
+	/**
+	 * The total number of events per second requested from all controllers.
+	 */
+	public final double getRequestedEventRate() {
+		double rate = 0;
+		for (int i = 0; i < controllers.length; i++)
+			rate += controllers[i].getRate();
+		return rate;
+	}
+
+	/**
+	 * The total number of events per second that got into the event queues
+	 * of all the controllers, from their first poll to their last.
+	 */
+	public final double getAchievedEventRate() {
+		double rate = 0;
+		for (int i = 0; i < controllers.length; i++) {
+			long elapsed = controllers[i].getElapsedNanos();
+			if (elapsed > 0)
+				rate += controllers[i].getQueuedCount()*1000000000d/elapsed;
+		}
+		return rate;
+	}
+
+	/**
+	 * The total number of events that got into the event queues of all the 
+	 * controllers.
+	 */
+	public final long getQueuedEventCount() {
+		long count = 0;
+		for (int i = 0; i < controllers.length; i++)
+			count += controllers[i].getQueuedCount();
+		return count;
+	}
+
+	/**
+	 * The total number of events made by all the controllers, including 
+	 * those that did not get into an event queue.
+	 */
+	public final long getEventCount() {
+		long count = 0;
+		for (int i = 0; i < controllers.length; i++)
+			count += controllers[i].getEventCount();
+		return count;
+	}
+
+	/**
+	 * The number of events dropped because a controller was not polled
+	 * for so long that too many events were due at once.
+	 */
+	public final long getSkippedEventCount() {
+		long count = 0;
+		for (int i = 0; i < controllers.length; i++)
+			count += controllers[i].getSkippedCount();
+		return count;
+	}
+
+	/**
+	 * Input that moves absolute axes in small random steps, toggles buttons,
+	 * moves hats to random positions and makes random relative movements.
+	 * Each call creates independent generators, one per controller so the 
+	 * threads polling different controllers don't wait for each other.
+	 * @param seed the seed of the random numbers, the same seed makes the 
+	 * same values. Each controller's generator is seeded with this plus the
+	 * controller number.
+	 */
+	public final static SyntheticInput randomWalk(final long seed) {
+		return new SyntheticInput() {
+			/* Replaced, never modified, when a new controller is seen */
+			private volatile Random[] randoms = new Random[0];
+
+			public final float nextValue(int controller, Component component, int index, float previous, long nanos) {
+				Random random = getRandom(controller);
+				if (component.isRelative())
+					return (random.nextFloat() - 0.5f)*20f;
+				if (component.isAnalog())
+					return Math.max(-1f, Math.min(1f, previous + (random.nextFloat() - 0.5f)*0.2f));
+				if (component.getIdentifier() == Component.Identifier.Axis.POV)
+					return random.nextInt(9)/8f;
+				return previous > 0 ? 0f : 1f;
+			}
+
+			private final Random getRandom(int controller) {
+				Random[] current = randoms;
+				if (controller < current.length && current[controller] != null)
+					return current[controller];
+				synchronized (this) {
+					current = randoms;
+					if (controller >= current.length) {
+						Random[] grown = new Random[controller + 1];
+						System.arraycopy(current, 0, grown, 0, current.length);
+						current = grown;
+					} else {
+						current = current.clone();
+					}
+					if (current[controller] == null)
+						current[controller] = new Random(seed + controller);
+					randoms = current;
+					return current[controller];
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+/**
+ * Listener that can be plugged to a button instead of a method name. <br>
+ * It is called directly without reflection. With Java 8 or later a lambda
+ * can be used, e.g. <code>button.plug(() -> jump(), ControlIO.ON_PRESS)</code>.
+ */
+public interface ButtonListener {
+
+	/**
+	 * Called when the event the listener was plugged for happens.
+	 */
+	public void buttonEvent();
+}
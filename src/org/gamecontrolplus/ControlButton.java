@@ -50,6 +50,21 @@ public class ControlButton extends ControlInput{
 	
 	private boolean pressed = false;
 	private boolean oldPressed = false;
+
+	/**
+	 * The number of times the button has been pressed
+	 */
+	private volatile long pressCount = 0;
+
+	/**
+	 * The time of the last press or release in nanoseconds
+	 */
+	private volatile long lastEdgeNanos = 0;
+
+	/**
+	 * True if onEvent was called since the last update
+	 */
+	private boolean hadEvent = false;
 	
 	/**
 	 * Instance to the PApplet where ProControl Plus is running
@@ -60,26 +75,65 @@ public class ControlButton extends ControlInput{
 	 * Initializes a new Button.
 	 * @param i_component
 	 */
-	ControlButton(final Component i_component, final PApplet i_parent){
-		super(i_component);
+	ControlButton(final Component i_component, final InputValues i_values, final int i_index, final PApplet i_parent){
+		super(i_component, i_values, i_index);
 		parent = i_parent;
 		inputType = BUTTON_TYPE;
 	}
 	
 	/**
 	 * This method is called before each frame to update the button state.
+	 * The device has already read the polled value into the value array
+	 * and passed any events for the button to onEvent. The
+	 * polled state is only used when there were none, for devices that 
+	 * don't report events or when events were lost. When there were events 
+	 * they are trusted, the polled state may have been read just before them.
 	 */
 	void update(){
-		actualValue = component.getPollData()*8;
-		pressed = actualValue>0f;
+		boolean polled = getValue()>0f;
+		if(!hadEvent && polled != pressed){
+			edge(polled, System.nanoTime());
+		}
+		hadEvent = false;
 		if(pressed && oldPressed){
 			callPlugs(whilePressPlugs);
-		}else if(pressed && !oldPressed){
+		}
+		oldPressed = pressed;
+		traceStamped = false;
+	}
+
+	boolean hasPlugs(){
+		return !onPressPlugs.isEmpty() || !onReleasePlugs.isEmpty() || !whilePressPlugs.isEmpty();
+	}
+
+	/**
+	 * Called with each event for this button from the device's event queue,
+	 * before update. Every press and release is seen even if both happen 
+	 * between two polls.
+	 * @param value the value of the event
+	 * @param nanos the time of the event
+	 */
+	void onEvent(final float value, final long nanos){
+		boolean down = value>0f;
+		hadEvent = true;
+		if(down != pressed){
+			edge(down, nanos);
+		}
+	}
+
+	/**
+	 * Change the state and call the ON_PRESS or ON_RELEASE plugs.
+	 */
+	private void edge(final boolean down, final long nanos){
+		pressed = down;
+		values.setPressed(index, down);
+		lastEdgeNanos = nanos;
+		if(down){
+			pressCount++;
 			callPlugs(onPressPlugs);
-		}else if(!pressed && oldPressed){
+		}else{
 			callPlugs(onReleasePlugs);
-		}	
-		oldPressed = pressed;
+		}
 	}
 	
 	/**
@@ -91,6 +145,27 @@ public class ControlButton extends ControlInput{
 	public boolean pressed(){
 		return pressed;
 	}
+
+	/**
+	 * Get the number of times the button has been pressed, including 
+	 * presses that were released again before the next frame.
+	 * @return the number of presses
+	 */
+	public long getPressCount(){
+		return pressCount;
+	}
+
+	/**
+	 * Get the time of the last press or release in nanoseconds. This is the
+	 * time the device reported for the event, or System.nanoTime() if the 
+	 * change was only seen by polling. The times can only be compared with
+	 * each other. In an ON_PRESS or ON_RELEASE plug this is the time of the 
+	 * press or release being handled.
+	 * @return time of the last change in nanoseconds
+	 */
+	public long getLastEdgeNanos(){
+		return lastEdgeNanos;
+	}
 	
 	protected final List<Plug> onPressPlugs = new ArrayList<Plug>();
 	protected final List<Plug> onReleasePlugs = new ArrayList<Plug>();
@@ -110,8 +185,31 @@ public class ControlButton extends ControlInput{
 		final String i_methodName,
 		final int i_eventType
 	){
+		addPlug(new Plug(i_object, i_methodName), i_methodName, i_eventType);
+	}
+
+	/**
+	 * Plug a listener that is called directly when the given event happens.
+	 * This is faster than plugging a method by name and with Java 8 or later
+	 * a lambda can be used.
+	 * @param i_listener ButtonListener: the listener to call
+	 * @param i_eventType constant: can be ControllIO.ON_PRESS, ControllIO.ON_RELEASE or ControllIO.WHILE_PRESS
+	 */
+	public void plug(
+		final ButtonListener i_listener,
+		final int i_eventType
+	){
+		addPlug(new Plug(i_listener), "listener", i_eventType);
+	}
+
+	/**
+	 * Add the plug to the list for the given event type.
+	 * @param i_plug
+	 * @param i_name name used in the error message
+	 * @param i_eventType
+	 */
+	protected void addPlug(final Plug i_plug, final String i_name, final int i_eventType){
 		List<Plug> plugList;
-		Plug plug = new Plug(i_object, i_methodName);
 		switch(i_eventType){
 			case ControlIO.ON_PRESS:
 				plugList = onPressPlugs;
@@ -123,9 +221,9 @@ public class ControlButton extends ControlInput{
 				plugList = whilePressPlugs;
 				break;
 			default:
-				throw new RuntimeException("Error on plug "+i_methodName+" check the given event type");
+				throw new RuntimeException("Error on plug "+i_name+" check the given event type");
 		}
-		plugList.add(plug);
+		plugList.add(i_plug);
 	}
 	
 	/**
@@ -149,8 +247,7 @@ public class ControlButton extends ControlInput{
 	 */
 	protected void callPlugs(final List<Plug> i_plugList){
 		for(int i = 0; i < i_plugList.size();i++){
-			Plug plug = i_plugList.get(i);
-			plug.call();
+			callPlug(i_plugList.get(i), PlugQueue.CALL_BUTTON, 0, 0);
 		}
 	}
 	
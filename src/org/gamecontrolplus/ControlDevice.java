@@ -35,13 +35,20 @@ package org.gamecontrolplus;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.gamecontrolplus.Configuration.InputConfig;
 
+import net.java.games.input.AbstractController;
+import net.java.games.input.AsyncRumbler;
 import net.java.games.input.Component;
 import net.java.games.input.Controller;
+import net.java.games.input.ControllerStats;
+import net.java.games.input.Event;
+import net.java.games.input.EventQueue;
+import net.java.games.input.LatencyHistogram;
 import net.java.games.input.Rumbler;
 import processing.core.PApplet;
 
@@ -59,6 +66,12 @@ import processing.core.PApplet;
  */
 public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 
+	/**
+	 * The number of events the device's event queue holds, the same as a
+	 * controller's own event queue by default.
+	 */
+	private static final int EVENT_TAP_SIZE = 32;
+
 	/**
 	 * The JInput controller instance for this device
 	 */
@@ -101,6 +114,23 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 	 */
 	private final List<ControlInput> inputs = new ArrayList<ControlInput>();
 
+	/**
+	 * The values, tolerances and multipliers of the inputs
+	 */
+	private InputValues values;
+
+	/**
+	 * The inputs that keep their own state and have to be updated one by 
+	 * one after the values have been read: buttons, hats and relative sliders
+	 */
+	private final List<ControlInput> statefulInputs = new ArrayList<ControlInput>();
+
+	/**
+	 * The inputs whose snapshot entry is not just their value: hats and 
+	 * relative sliders
+	 */
+	private final List<ControlInput> snapshotInputs = new ArrayList<ControlInput>();
+
 	/**
 	 * true if the device has been opened. Only opened devices are updated before
 	 * a frame.
@@ -111,6 +141,46 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 	 * The name of the device.
 	 */
 	private final String name;
+
+	/**
+	 * Passes the input values from the poll thread to the sketch thread.
+	 */
+	private SnapshotBuffer snapshots;
+
+	/**
+	 * The number of times this device has been polled.
+	 */
+	private long pollCount = 0;
+
+	/**
+	 * The buttons that are told about events, by their component. Hats 
+	 * are only polled.
+	 */
+	private final Map<Component, ControlButton> eventButtons = new IdentityHashMap<Component, ControlButton>();
+
+	/**
+	 * The absolute sliders by their component. Their events are only 
+	 * looked at while latency is traced, to time their plugs from the event.
+	 */
+	private final Map<Component, ControlSlider> eventSliders = new IdentityHashMap<Component, ControlSlider>();
+
+	/**
+	 * Used to take the events from the event tap
+	 */
+	private final Event event = new Event();
+
+	/**
+	 * The queue the controller copies its events to for this device. The 
+	 * controller's own event queue is left to the sketch. Null if the 
+	 * controller is not an AbstractController, then only polled values 
+	 * are used.
+	 */
+	private volatile EventQueue eventTap;
+
+	/**
+	 * The latency histograms, null unless latency is traced
+	 */
+	private volatile LatencyTrace trace;
 	
 	/**
 	 * Initializes a new device by the given Controller
@@ -122,6 +192,7 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		parent = i_parent;
 		name = i_controller.getName();
 		setupDevice();
+		setEventQueuePolicy(EVENTS_DROP_NEWEST);
 	}
 
 	/**
@@ -129,23 +200,42 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 	 */
 	private void setupDevice(){
 		final Component[] components = controller.getComponents();
+		// Order the components as the inputs will be, sliders first
+		final Component[] ordered = new Component[components.length];
+		int nbrSliders = 0;
+		for (int i = 0; i < components.length; i++){
+			if(components[i].isAnalog())
+				ordered[nbrSliders++] = components[i];
+		}
+		int next = nbrSliders;
+		for (int i = 0; i < components.length; i++){
+			if(!components[i].isAnalog())
+				ordered[next++] = components[i];
+		}
+		values = new InputValues(ordered, nbrSliders);
 		// Now identify all buttons and sliders
 		ControlInput input = null;
-		for (int i = 0; i < components.length; i++){
+		for (int i = 0; i < ordered.length; i++){
 			input = null;
-			if(components[i].isAnalog()){
-				if(components[i].isRelative()){
-					input = new ControlRelativeSlider(components[i]);
+			if(ordered[i].isAnalog()){
+				if(ordered[i].isRelative()){
+					input = new ControlRelativeSlider(ordered[i], values, i);
+					statefulInputs.add(input);
+					snapshotInputs.add(input);
 				}else{
-					input = new ControlSlider(components[i]);
+					input = new ControlSlider(ordered[i], values, i);
+					eventSliders.put(ordered[i], (ControlSlider)input);
 				}
 				sliders.add((ControlSlider)input);
 			} else {
-				if(components[i].getIdentifier() == Component.Identifier.Axis.POV){
-					input = new ControlHat(components[i],parent);
+				if(ordered[i].getIdentifier() == Component.Identifier.Axis.POV){
+					input = new ControlHat(ordered[i], values, i, parent);
+					snapshotInputs.add(input);
 				}else{
-					input = new ControlButton(components[i],parent);
+					input = new ControlButton(ordered[i], values, i, parent);
+					eventButtons.put(ordered[i], (ControlButton)input);
 				}
+				statefulInputs.add(input);
 				buttons.add((ControlButton)input);
 			} 
 			if(input != null){
@@ -154,6 +244,7 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		}  
 		inputs.addAll(sliders);
 		inputs.addAll(buttons);
+		snapshots = new SnapshotBuffer(inputs.size(), values.sliderCount);
 		rumblers = controller.getRumblers();
 	}
 
@@ -201,6 +292,13 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		return name;
 	}
 
+	/**
+	 * The JInput controller for this device
+	 */
+	Controller getController(){
+		return controller;
+	}
+
 	/**
 	 * Get the name for the type of device e.g. Gamepad, Mouse
 	 * @return
@@ -230,10 +328,115 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 	 */
 	public void update(){
 		if(open){
+			final LatencyTrace latencyTrace = trace;
+			if(latencyTrace != null)
+				latencyTrace.pollNanos = System.nanoTime();
 			controller.poll();
-			for (int i = 0; i < inputs.size(); i++)
-				inputs.get(i).update();
+			dispatchEvents();
+			values.update();
+			for (int i = 0; i < statefulInputs.size(); i++)
+				statefulInputs.get(i).update();
+			publishSnapshot();
+		}
+	}
+
+	/**
+	 * Copy the input values into a snapshot and make it available to the 
+	 * sketch thread.
+	 */
+	private void publishSnapshot(){
+		DeviceSnapshot snapshot = snapshots.back();
+		System.arraycopy(values.value, 0, snapshot.values, 0, values.value.length);
+		System.arraycopy(values.buttonBits, 0, snapshot.buttonBits, 0, values.buttonBits.length);
+		for (int i = 0; i < snapshotInputs.size(); i++){
+			ControlInput input = snapshotInputs.get(i);
+			input.copyTo(snapshot, input.index);
+		}
+		snapshot.sequence = ++pollCount;
+		snapshot.nanos = System.nanoTime();
+		snapshots.publish();
+	}
+
+	/**
+	 * Get the latest snapshot from the poll thread. 
+	 */
+	DeviceSnapshot acquireSnapshot(){
+		return snapshots.acquire();
+	}
+
+	/**
+	 * Get the state of all the inputs for the current frame. All the values
+	 * in the snapshot come from the same poll. The snapshot will not change 
+	 * until the next frame.
+	 * @return the snapshot taken before this frame
+	 */
+	public DeviceSnapshot getSnapshot(){
+		return snapshots.front();
+	}
+
+	/**
+	 * Set the queue the plugs of this device are passed to, null to call 
+	 * them immediately on the poll thread.
+	 */
+	void setPlugQueue(final PlugQueue queue){
+		for (int i = 0; i < inputs.size(); i++)
+			inputs.get(i).plugQueue = queue;
+	}
+
+	/**
+	 * Start or stop counting the polls of this device and timing the plugs 
+	 * called on the poll thread.
+	 * @param i_plugTimes histogram to time the plugs in, null to stop
+	 */
+	void setStats(final LatencyHistogram i_plugTimes){
+		if(controller instanceof AbstractController)
+			((AbstractController)controller).setStatsEnabled(i_plugTimes != null);
+		for (int i = 0; i < inputs.size(); i++)
+			inputs.get(i).plugTimes = i_plugTimes;
+	}
+
+	/**
+	 * Start or stop tracing the latency of the events from this device, 
+	 * through the poll and the input update to the plugs.
+	 */
+	void setLatencyTracing(final boolean i_enabled){
+		LatencyTrace latencyTrace = null;
+		if(controller instanceof AbstractController){
+			AbstractController abstractController = (AbstractController)controller;
+			abstractController.setLatencyTracing(i_enabled);
+			if(i_enabled)
+				latencyTrace = new LatencyTrace(abstractController.getEventClock());
 		}
+		trace = latencyTrace;
+		for (int i = 0; i < inputs.size(); i++)
+			inputs.get(i).trace = latencyTrace;
+	}
+
+	/**
+	 * The latency histograms of this device, null if latency is not traced.
+	 */
+	LatencyTrace getLatencyTrace(){
+		return trace;
+	}
+
+	/**
+	 * The time from each event to the controller's poll reading it, null
+	 * if latency is not traced.
+	 */
+	LatencyHistogram getReadLatencies(){
+		if(controller instanceof AbstractController)
+			return ((AbstractController)controller).getReadLatencies();
+		return null;
+	}
+
+	/**
+	 * The poll and event counters of the controller, null if they are not
+	 * enabled.
+	 */
+	ControllerStats getControllerStats(){
+		if(controller instanceof AbstractController)
+			return ((AbstractController)controller).getStats();
+		return null;
 	}
 
 	/**
@@ -316,6 +519,33 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		return sliders.size();
 	}
 
+	/**
+	 * Copy the value of every slider for the current frame into an array, 
+	 * in the same order as getSlider(int). The values come from the 
+	 * device's snapshot, so they are all from the same poll. If the array
+	 * is null or too short a new one is created, so the same array can be
+	 * passed in every frame.
+	 * @param dst the array to fill, can be null
+	 * @return the array holding the values
+	 */
+	public float[] getSliderValues(float[] dst){
+		return getSnapshot().getSliderValues(dst);
+	}
+
+	/**
+	 * Get whether every button is pressed in the current frame as a set of 
+	 * bits, bit i of the array being button i of getButton(int). Bit i is at
+	 * position i % 64 of array element i / 64. Hats are included and are 
+	 * pressed when not at rest. The bits come from the device's snapshot, 
+	 * like getSliderValues. If the array is null or too short a new one is 
+	 * created, so the same array can be passed in every frame.
+	 * @param dst the array to fill, can be null
+	 * @return the array holding the bits
+	 */
+	public long[] getButtonBits(long[] dst){
+		return getSnapshot().getButtonBits(dst);
+	}
+
 	/**
 	 * Use this method to get a Slider based on its position in the list of inputs. Use
 	 * printSliders to see what sliders are available for a device.
@@ -410,6 +640,29 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		throw new RuntimeException("There is no hat with the name " + i_hatName + ".");
 	}
 
+	/**
+	 * Pass the events queued by the last poll to the buttons, so they see
+	 * every press and release in order.
+	 */
+	private void dispatchEvents(){
+		final EventQueue queue = eventTap;
+		if(queue == null)
+			return;
+		final LatencyTrace latencyTrace = trace;
+		while(queue.getNextEvent(event)){
+			ControlButton button = eventButtons.get(event.getComponent());
+			if(button != null){
+				if(latencyTrace != null)
+					latencyTrace.updated(button, event);
+				button.onEvent(event.getValue(), event.getNanos());
+			}else if(latencyTrace != null){
+				ControlSlider slider = eventSliders.get(event.getComponent());
+				if(slider != null && slider.hasPlugs())
+					latencyTrace.updated(slider, event);
+			}
+		}
+	}
+
 	/**
 	 * Use this method to open a device. A device is automatically opened by
 	 * default, so you only need to call this when you have closed it with the
@@ -427,6 +680,32 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		open = false;
 	}
 
+	/**
+	 * Choose what happens when events arrive faster than they are used. 
+	 * This is the policy of the queue the device reads the events from, 
+	 * which is separate from the controller's own event queue so the 
+	 * sketch can still read that. Changing the policy empties the queue.
+	 * EVENTS_COALESCE merges the analog events for each slider between polls
+	 * and never drops button presses or releases.
+	 * @param policy EVENTS_DROP_NEWEST (the default), EVENTS_DROP_OLDEST, EVENTS_GROW or EVENTS_COALESCE
+	 */
+	public void setEventQueuePolicy(int policy){
+		if(controller instanceof AbstractController){
+			EventQueue tap = new EventQueue(EVENT_TAP_SIZE, policy);
+			eventTap = tap;
+			((AbstractController)controller).setEventTap(tap);
+		}
+	}
+
+	/**
+	 * Get the number of events dropped because the queue the device reads 
+	 * the events from was full.
+	 */
+	public long getDroppedEventCount(){
+		final EventQueue queue = eventTap;
+		return (queue == null) ? 0 : queue.getDroppedCount();
+	}
+
 	/*
 	 * JInput doesn't appear to detail any rumblers.
 	 * 
@@ -436,11 +715,42 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		return rumblers.length;
 	}
 
+	/*
+	 * Rumblers that support it are updated asynchronously, so this can be 
+	 * called every frame without waiting for the device. Only the latest
+	 * intensity is sent.
+	 */
 	public void rumble(final float i_intensity, final int i_id){
 		if(i_id >= rumblers.length) return;
+		else if(rumblers[i_id] instanceof AsyncRumbler)
+			((AsyncRumbler)rumblers[i_id]).rumbleAsync(i_intensity);
 		else rumblers[i_id].rumble(i_intensity);
 	}
 
+	/*
+	 * The number of rumble intensities that were replaced by a later one 
+	 * before they reached the device, or were not sent because the device 
+	 * already had that intensity.
+	 */
+	public long getRumbleCoalescedCount(){
+		long count = 0;
+		for(Rumbler rumbler : rumblers)
+			if(rumbler instanceof AsyncRumbler)
+				count += ((AsyncRumbler)rumbler).getCoalescedCount() + ((AsyncRumbler)rumbler).getSkippedCount();
+		return count;
+	}
+
+	/*
+	 * The number of rumble intensities sent to the device.
+	 */
+	public long getRumbleAppliedCount(){
+		long count = 0;
+		for(Rumbler rumbler : rumblers)
+			if(rumbler instanceof AsyncRumbler)
+				count += ((AsyncRumbler)rumbler).getAppliedCount();
+		return count;
+	}
+
 	public void rumble(final float i_intensity){
 		rumble(i_intensity,0);
 	}
@@ -525,6 +835,38 @@ public class ControlDevice implements Comparable<ControlDevice>, PCPconstants {
 		getButton(i_input).plug(parent,i_methodName,i_eventType);
 	}
 
+	/**
+	 * Plug a listener that is called directly when the given event happens
+	 * on the button. With Java 8 or later a lambda can be used.
+	 * @param i_listener ButtonListener: the listener to call
+	 * @param i_eventType constant: can be ControllIO.ON_PRESS, ControllIO.ON_RELEASE or ControllIO.WHILE_PRESS
+	 * @param i_input int: the number of the button that triggers the plug
+	 */
+	public void plug(
+			final ButtonListener i_listener, 
+			final int i_eventType,
+			final int i_input
+			){
+		open();
+		getButton(i_input).plug(i_listener,i_eventType);
+	}
+
+	/**
+	 * Plug a listener that is called directly when the given event happens
+	 * on the button. With Java 8 or later a lambda can be used.
+	 * @param i_listener ButtonListener: the listener to call
+	 * @param i_eventType constant: can be ControllIO.ON_PRESS, ControllIO.ON_RELEASE or ControllIO.WHILE_PRESS
+	 * @param i_input String: the name of the button that triggers the plug
+	 */
+	public void plug(
+			final ButtonListener i_listener, 
+			final int i_eventType,
+			final String i_input
+			){
+		open();
+		getButton(i_input).plug(i_listener,i_eventType);
+	}
+
 	public boolean equals(Object d){
 		boolean result = compareTo((ControlDevice)d) == 0;
 		return result;
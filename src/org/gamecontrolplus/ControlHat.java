@@ -101,8 +101,8 @@ public class ControlHat extends ControlButton {
 	 * Initializes a new ControllCrossButton.
 	 * @param i_component
 	 */
-	ControlHat(final Component i_component, final PApplet i_parent){
-		super(i_component,i_parent);
+	ControlHat(final Component i_component, final InputValues i_values, final int i_index, final PApplet i_parent){
+		super(i_component,i_values,i_index,i_parent);
 		inputType = HAT_TYPE;
 	}
 	
@@ -112,7 +112,7 @@ public class ControlHat extends ControlButton {
 	void update(){
 		super.update();
 		up = down = left = right = false;
-		switch((int)actualValue){
+		switch((int)getValue()){
 			case DOWN:
 				down = true;
 				y = change;
@@ -203,7 +203,7 @@ public class ControlHat extends ControlButton {
 	 * @return
 	 */
 	public int getPos(){
-		return Math.round(actualValue);
+		return Math.round(getValue());
 	}
 	
 	/**
@@ -221,12 +221,18 @@ public class ControlHat extends ControlButton {
 	public float getY(){
 		return y;
 	}
+
+	void copyTo(DeviceSnapshot snapshot, int index){
+		snapshot.values[index] = getValue();
+		snapshot.hatX[index] = x;
+		snapshot.hatY[index] = y;
+	}
 	
 	
 	public String toText(String tab){
 		String name = (actualName.length() > 20 ) ?
 				actualName.substring(0, 17) + "..." : (actualName + "                    ").substring(0,  20);
-		String mult = (String.valueOf(multiplier) + "            ").substring(0,15);
+		String mult = (String.valueOf(getMultiplier()) + "            ").substring(0,15);
 		return tab + "hat       " + name + mult;
 	}
 	
@@ -252,29 +258,27 @@ public class ControlHat extends ControlButton {
 		final String i_methodName,
 		final int i_eventType
 	){
-		List<Plug> plugList;
-		Plug plug = new Plug(i_object,i_methodName,true);
-		switch(i_eventType){
-			case ControlIO.ON_PRESS:
-				plugList = onPressPlugs;
-				break;
-			case ControlIO.ON_RELEASE:
-				plugList = onReleasePlugs;
-				break;	
-			case ControlIO.WHILE_PRESS:
-				plugList = whilePressPlugs;
-				break;
-			default:
-				throw new RuntimeException("Error on plug "+i_methodName+" check the given event type");
-		}		
-		plugList.add(plug);
+		addPlug(new Plug(i_object,i_methodName,true), i_methodName, i_eventType);
+	}
+
+	/**
+	 * Plug a listener that is called directly with the x and y values of 
+	 * the hat when the given event happens. With Java 8 or later a lambda 
+	 * can be used.
+	 * @param i_listener HatListener: the listener to call
+	 * @param i_eventType constant: can be ControllIO.ON_PRESS, ControllIO.ON_RELEASE or ControllIO.WHILE_PRESS
+	 */
+	public void plug(
+		final HatListener i_listener,
+		final int i_eventType
+	){
+		addPlug(new Plug(i_listener), "listener", i_eventType);
 	}
 	
 	
 	protected void callPlugs(final List<Plug> i_plugList){
 		for(int i = 0; i < i_plugList.size();i++){
-			Plug plug = i_plugList.get(i);
-			plug.call(x,y);
+			callPlug(i_plugList.get(i), PlugQueue.CALL_HAT, x, y);
 		}
 	}
 }
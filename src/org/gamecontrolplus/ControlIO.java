@@ -33,11 +33,23 @@
 
 package org.gamecontrolplus;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import net.java.games.input.Controller;
 import net.java.games.input.ControllerEnvironment;
+import net.java.games.input.ControllerEvent;
+import net.java.games.input.ControllerListener;
+import net.java.games.input.EventClock;
+import net.java.games.input.EventRecorder;
+import net.java.games.input.LatencyHistogram;
 
 import org.gamecontrolplus.gui.LSelectUI;
 
@@ -87,19 +99,72 @@ public class ControlIO implements Runnable, PCPconstants {
 	private final PApplet parent;
 
 	/**
-	 * List of the available devices
+	 * List of the available devices. Devices can be connected and disconnected
+	 * while the sketch is running so the list is copied when it changes, this
+	 * means iterating over it never blocks the poll threads.
+	 */
+	private final List<ControlDevice> devices = new CopyOnWriteArrayList<ControlDevice>();
+
+	/**
+	 * Threads to keep the devices updated and process any plugs created. Each
+	 * worker polls its own share of the devices.
+	 */
+	private PollWorker[] workers = new PollWorker[0];
+
+	/**
+	 * The device values for the current frame
+	 */
+	private final InputSnapshot snapshot = new InputSnapshot();
+
+	/**
+	 * Copy of the device list used by pre(), reused while it is big enough
+	 */
+	private ControlDevice[] frameDevices = new ControlDevice[0];
+
+	/**
+	 * One of POLL_FIXED_RATE, POLL_HYBRID or POLL_FREE_RUNNING
+	 */
+	private int pollMode = POLL_FIXED_RATE;
+
+	/**
+	 * Requested polls per second
+	 */
+	private float pollRate = PollScheduler.DEFAULT_RATE;
+
+	/**
+	 * Plug calls waiting to be run on the animation thread
 	 */
-	private final List<ControlDevice> devices = new ArrayList<ControlDevice>();
+	private final PlugQueue plugQueue = new PlugQueue(PlugQueue.DEFAULT_CAPACITY);
 
 	/**
-	 * Thread to keep the devices updated and process any plugs created.
+	 * PLUGS_DEFERRED or PLUGS_IMMEDIATE
 	 */
-	private final Thread thread;
+	private int plugMode = PLUGS_IMMEDIATE;
 
 	/**
-	 * Indicates whether the thread is active.
+	 * Maximum number of plug calls run each frame
 	 */
-	private boolean active = true;
+	private volatile int plugBudget = PlugQueue.DEFAULT_CAPACITY;
+
+	/**
+	 * Records the events of every device while recording, otherwise null
+	 */
+	private EventRecorder recorder;
+
+	/**
+	 * Times the plug calls while stats are enabled, otherwise null
+	 */
+	private LatencyHistogram plugTimes;
+
+	/**
+	 * True while the latency of the events is traced
+	 */
+	private boolean latencyTracing = false;
+
+	/**
+	 * Name of the JMX bean once it has been registered
+	 */
+	private ObjectName mbeanName;
 
 	/**
 	 * Use this method to get a ControllIO instance. <br/>
@@ -125,25 +190,131 @@ public class ControlIO implements Runnable, PCPconstants {
 	private ControlIO(final PApplet i_parent){
 		environment = ControllerEnvironment.getEnvironment();
 		parent = i_parent;
+		// Listen before scanning so a controller connected during the scan
+		// is not missed, addDevice ignores controllers seen twice
+		environment.addControllerListener(new ControllerListener() {
+			public void controllerAdded(ControllerEvent ev){
+				addDevice(ev.getController());
+			}
+
+			public void controllerRemoved(ControllerEvent ev){
+				removeDevice(ev.getController());
+			}
+		});
 		// Scan for devices
 		final Controller[] controllers = environment.getControllers();
-		for (int i = 0; i < controllers.length; i++){
-			devices.add(new ControlDevice(controllers[i], parent));
-		}
+		for (int i = 0; i < controllers.length; i++)
+			addDevice(controllers[i]);
 		// Set up applet
 		parent.registerMethod("dispose", this);
 		parent.registerMethod("pre", this);
 
-		thread = new Thread(this);
-		thread.start();
+		setPollThreads(1);
+	}
+
+	/**
+	 * Called for each controller found by the first scan and when a 
+	 * controller is connected while the sketch is running. Once the poll 
+	 * threads are running the new device is given to the worker with the 
+	 * fewest devices.
+	 */
+	private synchronized void addDevice(Controller controller){
+		for(ControlDevice device : devices)
+			if(device.getController() == controller)
+				return;
+		ControlDevice device = new ControlDevice(controller, parent);
+		device.setPlugQueue(plugMode == PLUGS_DEFERRED ? plugQueue : null);
+		device.setStats(plugTimes);
+		device.setLatencyTracing(latencyTracing);
+		if(recorder != null){
+			try{
+				recorder.attach(controller);
+			}catch(IOException e){
+				System.out.println("Unable to record " + controller.getName() + ": " + e.getMessage());
+			}
+		}
+		devices.add(device);
+		if(workers.length > 0){
+			PollWorker least = workers[0];
+			for(PollWorker worker : workers)
+				if(worker.size() < least.size())
+					least = worker;
+			least.add(device);
+		}
+	}
+
+	/**
+	 * Called when a controller is disconnected while the sketch is running.
+	 */
+	private synchronized void removeDevice(Controller controller){
+		for(ControlDevice device : devices){
+			if(device.getController() == controller){
+				for(PollWorker worker : workers)
+					if(worker.remove(device))
+						break;
+				devices.remove(device);
+				device.close();
+				return;
+			}
+		}
 	}
 
 
 	/**
 	 * dispose method called by PApplet after closing. The update thread is deactivated here
 	 */
-	public void dispose(){
-		active = false;
+	public synchronized void dispose(){
+		for(PollWorker worker : workers)
+			worker.stop();
+		workers = new PollWorker[0];
+		stopRecording();
+		unregisterMBean();
+	}
+
+	/**
+	 * Start recording the events of every device, including devices connected
+	 * later, to a binary log file. A file name that is not an absolute path 
+	 * is in the sketch's data folder. Any recording already in progress is 
+	 * stopped first.
+	 * @param i_filename the file to record to, it is replaced if it exists
+	 */
+	public synchronized void startRecording(String i_filename){
+		stopRecording();
+		File file = new File(i_filename);
+		if(!file.isAbsolute())
+			file = new File(parent.dataPath(i_filename));
+		try{
+			recorder = new EventRecorder(file);
+			for(ControlDevice device : devices)
+				recorder.attach(device.getController());
+		}catch(IOException e){
+			stopRecording();
+			throw new RuntimeException("Unable to record to " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stop recording and close the log file. Does nothing if not recording.
+	 */
+	public synchronized void stopRecording(){
+		if(recorder == null)
+			return;
+		for(ControlDevice device : devices)
+			recorder.detach(device.getController());
+		try{
+			recorder.close();
+		}catch(IOException e){
+			System.out.println("Unable to close the recording: " + e.getMessage());
+		}
+		recorder = null;
+	}
+
+	/**
+	 * Get the number of events recorded since startRecording was called, 
+	 * zero if not recording.
+	 */
+	public synchronized long getRecordedEventCount(){
+		return recorder == null ? 0 : recorder.getEventCount();
 	}
 
 	/**
@@ -155,9 +326,10 @@ public class ControlIO implements Runnable, PCPconstants {
 		s.append(tab + "##########################################################################################\n");
 		s.append(tab + "                   Game Control Plus  - available devices\n");
 		s.append(tab + "                   --------------------------------------\n");
-		for (int i = 0; i < devices.size(); i++){
-			String id = String.valueOf(i + "    ").substring(0,3);
-			s.append(tab + devices.get(i).toListText("  " + id) + "\n");
+		int i = 0;
+		for (ControlDevice device : devices){
+			String id = String.valueOf(i++ + "    ").substring(0,3);
+			s.append(tab + device.toListText("  " + id) + "\n");
 		}
 		s.append(tab + "##########################################################################################\n");
 		return s.toString();
@@ -173,8 +345,8 @@ public class ControlIO implements Runnable, PCPconstants {
 		s.append(tab + "##########################################################################################\n");
 		s.append(tab + "                   Game Control Plus  - available devices\n");
 		s.append(tab + "                   --------------------------------------\n");
-		for (int i = 0; i < devices.size(); i++){
-			s.append(devices.get(i).toText(tab + "  "));
+		for (ControlDevice device : devices){
+			s.append(device.toText(tab + "  "));
 		}
 		s.append(tab + "##########################################################################################\n");
 		return s.toString();
@@ -206,10 +378,13 @@ public class ControlIO implements Runnable, PCPconstants {
 	 * @return ControllDevice, the device corresponding to the given number or name
 	 */
 	public ControlDevice getDevice(final int i_deviceNumber){
-		if (i_deviceNumber >= getNumberOfDevices()){
+		// A device can be disconnected between checking the size and getting it
+		final ControlDevice result;
+		try{
+			result = devices.get(i_deviceNumber);
+		}catch(IndexOutOfBoundsException e){
 			throw new RuntimeException("There is no device with the number " + i_deviceNumber + ".");
 		}
-		ControlDevice result = devices.get(i_deviceNumber);
 		result.open();
 		return result;
 	}
@@ -221,8 +396,7 @@ public class ControlIO implements Runnable, PCPconstants {
 	 * @param i_deviceName String, name of the device to open
 	 */
 	public ControlDevice getDevice(final String i_deviceName){
-		for (int i = 0; i < getNumberOfDevices(); i++){
-			ControlDevice device = devices.get(i);
+		for (ControlDevice device : devices){
 			if (device.getName().equals(i_deviceName)){
 				device.open();
 				return device;
@@ -288,25 +462,302 @@ public class ControlIO implements Runnable, PCPconstants {
 
 	/**
 	 * Updates the devices, to get the actual data before a new
-	 * frame is drawn
+	 * frame is drawn, then runs the deferred plugs.
 	 */
 	public void pre(){
-		for (int i = 0; i < devices.size(); i++)
-			devices.get(i).updateRelative();
+		// Work from one copy of the list, the hotplug thread can remove a 
+		// device at any time. The copy ends at the first null when it is
+		// shorter than the reused array.
+		ControlDevice[] list = devices.toArray(frameDevices);
+		frameDevices = list;
+		int n = 0;
+		while (n < list.length && list[n] != null)
+			n++;
+		for (int i = 0; i < n; i++)
+			list[i].updateRelative();
+		snapshot.acquire(list, n);
+		plugQueue.drain(plugBudget);
 	}
 
 	/**
-	 * Controllers are now polled in a separate thread to get independent from
-	 * the framerate of the sketch
+	 * Set where plugs are called. <br>
+	 * <ul>
+	 * <li>PLUGS_IMMEDIATE - (default) plugs are called on the poll thread as 
+	 * soon as the event is seen, at the same time as draw() is running. </li>
+	 * <li>PLUGS_DEFERRED - the poll threads queue the plug calls and they
+	 * are run before the next frame, on the same thread as draw(). Plugs can
+	 * safely change the sketch's variables and a slow plug does not hold up 
+	 * polling. </li>
+	 * </ul>
+	 * @param mode PLUGS_DEFERRED or PLUGS_IMMEDIATE
 	 */
-	public void run(){
-		while (active){
-			for (int i = 0; i < devices.size(); i++)
-				devices.get(i).update();
-			try {
-				Thread.sleep  ( 10 );
-			} catch ( InterruptedException e ) { }
+	public synchronized void setPlugMode(int mode){
+		if(mode != PLUGS_DEFERRED && mode != PLUGS_IMMEDIATE)
+			throw new RuntimeException("Unknown plug mode " + mode);
+		plugMode = mode;
+		for (ControlDevice device : devices)
+			device.setPlugQueue(mode == PLUGS_DEFERRED ? plugQueue : null);
+	}
+
+	/**
+	 * Get where plugs are called.
+	 * @return PLUGS_DEFERRED or PLUGS_IMMEDIATE
+	 */
+	public synchronized int getPlugMode(){
+		return plugMode;
+	}
+
+	/**
+	 * Set the maximum number of deferred plug calls run before each frame.
+	 * Calls over the budget are run on the following frames. The default 
+	 * is the size of the queue, so normally every queued call is run.
+	 * @param budget the number of calls per frame (at least 1)
+	 */
+	public void setPlugBudget(int budget){
+		if(budget < 1)
+			throw new RuntimeException("The plug budget must be at least 1");
+		plugBudget = budget;
+	}
+
+	/**
+	 * Get the maximum number of deferred plug calls run before each frame.
+	 */
+	public int getPlugBudget(){
+		return plugBudget;
+	}
+
+	/**
+	 * Get the number of times a deferred plug call had to wait for a later 
+	 * frame because the budget was used up. A call waiting for several 
+	 * frames is counted for each of them.
+	 */
+	public long getDeferredPlugCount(){
+		return plugQueue.getDeferredCount();
+	}
+
+	/**
+	 * Get the number of deferred plug calls lost because more calls were 
+	 * queued than the queue can hold.
+	 */
+	public long getDroppedPlugCount(){
+		return plugQueue.getDroppedCount();
+	}
+
+	/**
+	 * Start or stop collecting stats. While enabled each device counts its 
+	 * polls and events and times each poll, and every plug call is timed. 
+	 * When disabled this costs almost nothing, and stopping discards the 
+	 * counters. <br>
+	 * The first time stats are enabled a JMX bean named 
+	 * org.gamecontrolplus:type=ControlIO,id=&lt;identity hash code&gt; is 
+	 * registered so the stats can also be watched from outside the sketch,
+	 * e.g. with jconsole. The id keeps the beans of several ControlIOs in 
+	 * one JVM apart.
+	 * @param enabled true to collect stats
+	 * @see #getStats()
+	 */
+	public synchronized void setStatsEnabled(boolean enabled){
+		if(enabled == (plugTimes != null))
+			return;
+		plugTimes = enabled ? new LatencyHistogram() : null;
+		plugQueue.plugTimes = plugTimes;
+		for (ControlDevice device : devices)
+			device.setStats(plugTimes);
+		if(enabled)
+			registerMBean();
+	}
+
+	public synchronized boolean isStatsEnabled(){
+		return plugTimes != null;
+	}
+
+	/**
+	 * Start or stop tracing the latency of the input events. While enabled 
+	 * every event is timed as it goes from the device, through the poll and
+	 * the update of the input, to each plug it causes to be called, and the
+	 * times of each stage are recorded in histograms for each device. The
+	 * event times are compared with System.nanoTime(), so enabling the 
+	 * tracing takes a few milliseconds to measure the offset between the 
+	 * event clock and System.nanoTime(). Stopping discards the histograms.
+	 * @param enabled true to trace the latency
+	 * @see DeviceStats#getEndToEndLatencies()
+	 */
+	public synchronized void setLatencyTracing(boolean enabled){
+		if(enabled == latencyTracing)
+			return;
+		if(enabled)
+			EventClock.WALL_CLOCK.calibrate();
+		latencyTracing = enabled;
+		for (ControlDevice device : devices)
+			device.setLatencyTracing(enabled);
+		if(enabled)
+			registerMBean();
+	}
+
+	public synchronized boolean isLatencyTracing(){
+		return latencyTracing;
+	}
+
+	/**
+	 * Get the current counters of every device and of the plugs. The event 
+	 * queue and plug queue counters are always available, the rest only 
+	 * while stats are enabled.
+	 * @return a new snapshot of the counters
+	 * @see #setStatsEnabled(boolean)
+	 */
+	public synchronized ControlIOStats getStats(){
+		return new ControlIOStats(plugTimes != null, devices, getObservedPollRate(), getPollJitter(), plugQueue, plugTimes);
+	}
+
+	private void registerMBean(){
+		if(mbeanName != null)
+			return;
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(ControlIOMonitor.OBJECT_NAME + ",id=" + System.identityHashCode(this));
+			server.registerMBean(new ControlIOMonitor(this), name);
+			mbeanName = name;
+		}catch(JMException e){
+			System.out.println("Unable to register the stats with JMX: " + e.getMessage());
+		}
+	}
+
+	private void unregisterMBean(){
+		if(mbeanName == null)
+			return;
+		try{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+		}catch(JMException e){
+			System.out.println("Unable to unregister the stats from JMX: " + e.getMessage());
 		}
+		mbeanName = null;
+	}
+
+	/**
+	 * Get the values of every input on every device for the current frame. <br>
+	 * The snapshot is taken just before draw() is called and will not change
+	 * until the next frame. Unlike reading the inputs directly, the values for
+	 * each device are guaranteed to come from the same poll.
+	 * @return the snapshot for this frame
+	 */
+	public InputSnapshot getSnapshot(){
+		return snapshot;
+	}
+
+	/**
+	 * Set the number of threads used to poll the devices. <br>
+	 * Controllers are polled in separate threads to get independent from
+	 * the framerate of the sketch. By default a single thread polls every device
+	 * but if you have a lot of devices attached they can be shared between 
+	 * several threads, so that one slow device does not hold up the others. 
+	 * Each device is always polled by the same thread.
+	 * 
+	 * @param nbrThreads the number of polling threads (at least 1)
+	 */
+	public synchronized void setPollThreads(int nbrThreads){
+		if(nbrThreads < 1)
+			throw new RuntimeException("There must be at least one poll thread");
+		for(PollWorker worker : workers)
+			worker.stop();
+		workers = new PollWorker[nbrThreads];
+		for(int i = 0; i < nbrThreads; i++)
+			workers[i] = new PollWorker(PollScheduler.makeScheduler(pollMode, pollRate), i);
+		int next = 0;
+		for(ControlDevice device : devices)
+			workers[next++ % nbrThreads].add(device);
+		for(PollWorker worker : workers)
+			worker.start();
+	}
+
+	/**
+	 * Get the number of threads used to poll the devices.
+	 */
+	public synchronized int getPollThreads(){
+		return workers.length;
+	}
+
+	/**
+	 * Update every device once, but only when no poll threads are running,
+	 * i.e. after dispose(). While the poll threads are running they are the
+	 * only ones allowed to update the devices and this does nothing.
+	 * @deprecated the poll threads are started by ControlIO, see 
+	 * {@link #setPollThreads(int)}
+	 */
+	@Deprecated
+	public synchronized void run(){
+		if(workers.length > 0)
+			return;
+		for(ControlDevice device : devices)
+			device.update();
+	}
+
+	/**
+	 * Set how the devices are polled. <br>
+	 * <ul>
+	 * <li>POLL_FIXED_RATE - (default) poll at the requested rate, sleeping between polls. </li>
+	 * <li>POLL_HYBRID - poll at the requested rate, sleeping then spinning between polls.
+	 * This gives the most accurate timing but uses more CPU. </li>
+	 * <li>POLL_FREE_RUNNING - poll continuously, the poll rate is ignored. </li>
+	 * </ul>
+	 * @param mode POLL_FIXED_RATE, POLL_HYBRID or POLL_FREE_RUNNING
+	 */
+	public synchronized void setPollMode(int mode){
+		if(mode != pollMode){
+			for(PollWorker worker : workers)
+				worker.setScheduler(PollScheduler.makeScheduler(mode, pollRate));
+			pollMode = mode;
+		}
+	}
+
+	/**
+	 * Get the current poll mode.
+	 * @return POLL_FIXED_RATE, POLL_HYBRID or POLL_FREE_RUNNING
+	 */
+	public synchronized int getPollMode(){
+		return pollMode;
+	}
+
+	/**
+	 * Set the number of times per second the devices are polled. The default is 100. <br>
+	 * Button presses shorter than the time between polls can be missed so
+	 * increase this if you need to detect very short presses.
+	 * @param rate polls per second
+	 */
+	public synchronized void setPollRate(float rate){
+		for(PollWorker worker : workers)
+			worker.getScheduler().setRate(rate);
+		pollRate = rate;
+	}
+
+	/**
+	 * Get the requested number of polls per second.
+	 */
+	public synchronized float getPollRate(){
+		return pollRate;
+	}
+
+	/**
+	 * Get the number of polls per second actually being achieved. If there is
+	 * more than one poll thread this is the rate of the slowest.
+	 */
+	public synchronized float getObservedPollRate(){
+		float rate = 0;
+		for(int i = 0; i < workers.length; i++){
+			float r = workers[i].getScheduler().getObservedRate();
+			rate = (i == 0) ? r : Math.min(rate, r);
+		}
+		return rate;
+	}
+
+	/**
+	 * Get the average variation in the time between polls in milliseconds. If 
+	 * there is more than one poll thread this is the largest.
+	 */
+	public synchronized float getPollJitter(){
+		float jitter = 0;
+		for(PollWorker worker : workers)
+			jitter = Math.max(jitter, worker.getScheduler().getJitter());
+		return jitter;
 	}
 
 	/**
@@ -0,0 +1,122 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+/**
+ * Exposes the stats of a ControlIO through JMX.
+ */
+class ControlIOMonitor implements ControlIOMonitorMBean {
+
+	/* The name of each bean adds the id of its ControlIO */
+	static final String OBJECT_NAME = "org.gamecontrolplus:type=ControlIO";
+
+	private final ControlIO controlIO;
+
+	ControlIOMonitor(final ControlIO i_controlIO){
+		controlIO = i_controlIO;
+	}
+
+	public boolean isStatsEnabled(){
+		return controlIO.isStatsEnabled();
+	}
+
+	public void setStatsEnabled(boolean enabled){
+		controlIO.setStatsEnabled(enabled);
+	}
+
+	public int getNumberOfDevices(){
+		return controlIO.getNumberOfDevices();
+	}
+
+	public float getObservedPollRate(){
+		return controlIO.getObservedPollRate();
+	}
+
+	public float getPollJitter(){
+		return controlIO.getPollJitter();
+	}
+
+	public double getPollTimeMean(){
+		return controlIO.getStats().getPollTimes().getMean();
+	}
+
+	public long getPollTime99(){
+		return controlIO.getStats().getPollTimes().getPercentile(99);
+	}
+
+	public long getEventCount(){
+		return controlIO.getStats().getEventCount();
+	}
+
+	public float getEventRate(){
+		return controlIO.getStats().getEventRate();
+	}
+
+	public long getDroppedEventCount(){
+		return controlIO.getStats().getDroppedEventCount();
+	}
+
+	public long getPlugCallCount(){
+		return controlIO.getStats().getPlugCallCount();
+	}
+
+	public double getPlugTimeMean(){
+		return controlIO.getStats().getPlugTimes().getMean();
+	}
+
+	public long getPlugTime99(){
+		return controlIO.getStats().getPlugTimes().getPercentile(99);
+	}
+
+	public long getDroppedPlugCount(){
+		return controlIO.getDroppedPlugCount();
+	}
+
+	public long getDeferredPlugCount(){
+		return controlIO.getDeferredPlugCount();
+	}
+
+	public boolean isLatencyTracing(){
+		return controlIO.isLatencyTracing();
+	}
+
+	public void setLatencyTracing(boolean enabled){
+		controlIO.setLatencyTracing(enabled);
+	}
+
+	public double getEndToEndLatencyMean(){
+		return controlIO.getStats().getEndToEndLatencies().getMean();
+	}
+
+	public long getEndToEndLatency99(){
+		return controlIO.getStats().getEndToEndLatencies().getPercentile(99);
+	}
+
+	public String getStatsText(){
+		return controlIO.getStats().toText("");
+	}
+}
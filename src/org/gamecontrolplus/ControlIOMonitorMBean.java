@@ -0,0 +1,78 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+/**
+ * The JMX management interface of ControlIO, registered as 
+ * org.gamecontrolplus:type=ControlIO,id=&lt;identity hash code&gt; when 
+ * stats or latency tracing are first enabled. Each
+ * attribute is read from a new ControlIOStats. Times are in nanoseconds.
+ * 
+ * @see ControlIOStats
+ */
+public interface ControlIOMonitorMBean {
+
+	boolean isStatsEnabled();
+
+	void setStatsEnabled(boolean enabled);
+
+	int getNumberOfDevices();
+
+	float getObservedPollRate();
+
+	float getPollJitter();
+
+	double getPollTimeMean();
+
+	long getPollTime99();
+
+	long getEventCount();
+
+	float getEventRate();
+
+	long getDroppedEventCount();
+
+	long getPlugCallCount();
+
+	double getPlugTimeMean();
+
+	long getPlugTime99();
+
+	long getDroppedPlugCount();
+
+	long getDeferredPlugCount();
+
+	boolean isLatencyTracing();
+
+	void setLatencyTracing(boolean enabled);
+
+	double getEndToEndLatencyMean();
+
+	long getEndToEndLatency99();
+
+	String getStatsText();
+}
@@ -0,0 +1,225 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.util.List;
+
+import net.java.games.input.LatencyHistogram;
+
+/**
+ * The counters of every device and of the plugs at one time, made by 
+ * ControlIO.getStats(). <br>
+ * Only the event queue and plug queue counters are kept all the time, the
+ * rest are kept from when stats are enabled with ControlIO.setStatsEnabled,
+ * and the latencies from when ControlIO.setLatencyTracing is called. 
+ * Times are in nanoseconds. The same counters can be read with JMX, from 
+ * the MBean org.gamecontrolplus:type=ControlIO,id=&lt;identity hash code&gt; 
+ * registered when stats or latency tracing are first enabled.
+ * 
+ * @see DeviceStats
+ */
+public final class ControlIOStats {
+
+	private final boolean enabled;
+	private final long nanos;
+	private final DeviceStats[] devices;
+	private final float observedPollRate;
+	private final float pollJitter;
+	private final long plugCallCount;
+	private final long droppedPlugCount;
+	private final long deferredPlugCount;
+	private final LatencyHistogram.Snapshot plugTimes;
+	private final LatencyHistogram.Snapshot pollTimes;
+
+	ControlIOStats(
+			final boolean i_enabled,
+			final List<ControlDevice> i_devices,
+			final float i_observedPollRate,
+			final float i_pollJitter,
+			final PlugQueue i_plugQueue,
+			final LatencyHistogram i_plugTimes
+			){
+		enabled = i_enabled;
+		nanos = System.nanoTime();
+		devices = new DeviceStats[i_devices.size()];
+		LatencyHistogram.Snapshot allPollTimes = LatencyHistogram.Snapshot.empty();
+		for(int i = 0; i < devices.length; i++){
+			devices[i] = new DeviceStats(i_devices.get(i));
+			allPollTimes = allPollTimes.plus(devices[i].getPollTimes());
+		}
+		pollTimes = allPollTimes;
+		observedPollRate = i_observedPollRate;
+		pollJitter = i_pollJitter;
+		droppedPlugCount = i_plugQueue.getDroppedCount();
+		deferredPlugCount = i_plugQueue.getDeferredCount();
+		plugTimes = (i_plugTimes == null) ? LatencyHistogram.Snapshot.empty() : i_plugTimes.getSnapshot();
+		plugCallCount = plugTimes.getCount();
+	}
+
+	/**
+	 * Whether stats were enabled when these counters were read.
+	 */
+	public boolean isEnabled(){
+		return enabled;
+	}
+
+	/**
+	 * Get the time the counters were read, from System.nanoTime().
+	 */
+	public long getNanos(){
+		return nanos;
+	}
+
+	/**
+	 * Get the number of devices.
+	 */
+	public int getNumberOfDevices(){
+		return devices.length;
+	}
+
+	/**
+	 * Get the counters of a single device.
+	 * @param device the device number as used by ControlIO.getDevice(int)
+	 */
+	public DeviceStats getDevice(int device){
+		return devices[device];
+	}
+
+	/**
+	 * Get the number of polls per second of the slowest poll thread.
+	 */
+	public float getObservedPollRate(){
+		return observedPollRate;
+	}
+
+	/**
+	 * Get the largest poll jitter of the poll threads, in milliseconds.
+	 */
+	public float getPollJitter(){
+		return pollJitter;
+	}
+
+	/**
+	 * Get the number of events read from all the devices.
+	 */
+	public long getEventCount(){
+		long count = 0;
+		for(DeviceStats device : devices)
+			count += device.getEventCount();
+		return count;
+	}
+
+	/**
+	 * Get the number of events per second from all the devices, over about
+	 * the last second.
+	 */
+	public float getEventRate(){
+		float rate = 0;
+		for(DeviceStats device : devices)
+			rate += device.getEventRate();
+		return rate;
+	}
+
+	/**
+	 * Get the number of events dropped by the event queues of all the devices.
+	 */
+	public long getDroppedEventCount(){
+		long count = 0;
+		for(DeviceStats device : devices)
+			count += device.getDroppedEventCount();
+		return count;
+	}
+
+	/**
+	 * Get the histogram of how long the polls of all the devices took.
+	 */
+	public LatencyHistogram.Snapshot getPollTimes(){
+		return pollTimes;
+	}
+
+	/**
+	 * Get the histogram of the time from each event to each plug it caused
+	 * being called, for all the devices.
+	 * @see DeviceStats#getEndToEndLatencies()
+	 */
+	public LatencyHistogram.Snapshot getEndToEndLatencies(){
+		LatencyHistogram.Snapshot latencies = LatencyHistogram.Snapshot.empty();
+		for(DeviceStats device : devices)
+			latencies = latencies.plus(device.getEndToEndLatencies());
+		return latencies;
+	}
+
+	/**
+	 * Get the number of plug calls timed.
+	 */
+	public long getPlugCallCount(){
+		return plugCallCount;
+	}
+
+	/**
+	 * Get the number of deferred plug calls dropped because the plug queue 
+	 * was full.
+	 */
+	public long getDroppedPlugCount(){
+		return droppedPlugCount;
+	}
+
+	/**
+	 * Get the number of times a deferred plug call was left for a later 
+	 * frame because the plug budget was used up.
+	 */
+	public long getDeferredPlugCount(){
+		return deferredPlugCount;
+	}
+
+	/**
+	 * Get the histogram of how long the plug calls took, whether they were
+	 * called on the poll thread or the animation thread.
+	 */
+	public LatencyHistogram.Snapshot getPlugTimes(){
+		return plugTimes;
+	}
+
+	/**
+	 * Get a text description of the counters, one line per device.
+	 * @param tab
+	 */
+	public String toText(String tab){
+		StringBuilder s = new StringBuilder();
+		s.append(tab + "poll rate " + observedPollRate + "/s  jitter " + pollJitter + "ms  events " + getEventCount()
+				+ " (" + Math.round(getEventRate()) + "/s)  dropped " + getDroppedEventCount() + "\n");
+		s.append(tab + "plugs " + plugCallCount + "  mean " + Math.round(plugTimes.getMean()) + "ns  99% < " 
+				+ plugTimes.getPercentile(99) + "ns  dropped " + droppedPlugCount + "  deferred " + deferredPlugCount + "\n");
+		for(DeviceStats device : devices)
+			s.append(device.toText(tab + "  ") + "\n");
+		return s.toString();
+	}
+
+	public String toString(){
+		return toText("");
+	}
+}
@@ -34,6 +34,7 @@
 package org.gamecontrolplus;
 
 import net.java.games.input.Component;
+import net.java.games.input.LatencyHistogram;
 
 /**
  * Base class for input elements of a controller.
@@ -41,27 +42,15 @@ import net.java.games.input.Component;
  */
 public abstract class ControlInput implements PCPconstants {
 	/**
-	 * The current state of the input
+	 * The device's value arrays. The current state, tolerance and 
+	 * multiplier of this input are kept there at this input's index.
 	 */
-	protected float actualValue = 0f;
+	final InputValues values;
 
 	/**
-	 * Included for all inputs for convenience but only used
-	 * by the ControlSlider. <br>
-	 * Tolerance is minimum under which the input is set to
-	 * zero.
+	 * The position of this input in the device's input list
 	 */
-	protected float tolerance = 0f;
-	
-	/**
-	 * Included for all inputs for convenience but only used
-	 * by the ControlSlider and ControlHat classes. <br>
-	 * The value of a slider is a relative value between
-	 * -1.0f and 1.0f with the multiplier you can increase 
-	 * and decrease this range.
-	 */
-	protected float multiplier = 1f;
-		
+	final int index;
 
 	/**
 	 * JInput Component representing this Slider
@@ -78,14 +67,41 @@ public abstract class ControlInput implements PCPconstants {
 	 * One of BUTTON_TYPE, HAT_TYPE or SLIDER_TYPE
 	 */
 	protected int inputType;
+
+	/**
+	 * Queue the plugs are passed to so they run on the animation thread,
+	 * null to call them immediately on the poll thread.
+	 */
+	volatile PlugQueue plugQueue;
+
+	/**
+	 * Histogram the plugs called on the poll thread are timed in, null
+	 * when they are not timed.
+	 */
+	volatile LatencyHistogram plugTimes;
+
+	/**
+	 * The device's latency histograms, null when latency is not traced.
+	 */
+	volatile LatencyTrace trace;
+
+	/**
+	 * The times of the last update of this input, for the latency trace,
+	 * and whether they belong to the current update.
+	 */
+	long traceEventNanos;
+	long traceUpdateNanos;
+	boolean traceStamped;
 	
 	/**
 	 * Initializes a new Slider.
 	 * @param i_component
 	 */
-	ControlInput(final Component i_component){
+	ControlInput(final Component i_component, final InputValues i_values, final int i_index){
 		component = i_component;
 		actualName = component.getName();
+		values = i_values;
+		index = i_index;
 	}
 	
 	/**
@@ -97,19 +113,49 @@ public abstract class ControlInput implements PCPconstants {
 		return actualName;
 	}
 
+	/**
+	 * Call a plug now, or pass it to the plug queue when plugs are deferred.
+	 * @param i_kind PlugQueue.CALL_BUTTON, CALL_HAT or CALL_SLIDER
+	 */
+	final void callPlug(final Plug i_plug, final int i_kind, final float i_x, final float i_y){
+		final PlugQueue queue = plugQueue;
+		final LatencyTrace latencyTrace = trace;
+		if(latencyTrace != null && !traceStamped)
+			latencyTrace.updated(this);
+		if(queue == null){
+			if(latencyTrace != null)
+				latencyTrace.plugCalled(traceEventNanos, traceUpdateNanos, System.nanoTime());
+			i_plug.call(i_kind, i_x, i_y, plugTimes);
+		}else{
+			queue.offer(i_plug, i_kind, i_x, i_y, latencyTrace, traceEventNanos, traceUpdateNanos);
+		}
+	}
+
+	/**
+	 * True if any plugs have been added to this input.
+	 */
+	abstract boolean hasPlugs();
+
 	/**
 	 * Gives you the current value of an input.
 	 * @return float, the actual value of the slider
 	 */
 	public float getValue(){
-		return actualValue;
+		return values.value[index];
+	}
+
+	/**
+	 * Set the current state of the input.
+	 */
+	void setValue(final float i_value){
+		values.value[index] = i_value;
 	}
 	
 	/**
 	 * This value has no significance except for the ControlSlider class.
 	 */
 	public float getTolerance(){
-		return tolerance;
+		return values.tolerance[index];
 	}
 	
 	/**
@@ -121,7 +167,7 @@ public abstract class ControlInput implements PCPconstants {
 	 * @param i_tolerance float, the new tolerance for the slider
 	 */
 	public void setTolerance(final float i_tolerance){
-		tolerance = i_tolerance;
+		values.tolerance[index] = i_tolerance;
 	}
 	
 	/**
@@ -129,7 +175,7 @@ public abstract class ControlInput implements PCPconstants {
 	 * ControlHat classes.
 	 */
 	public float getMultiplier(){
-		return multiplier;
+		return values.multiplier[index];
 	}
 	
 	/**
@@ -144,7 +190,7 @@ public abstract class ControlInput implements PCPconstants {
 	 * @param i_multiplier float, the new multiplier for a Slider or Hat
 	 */
 	public void setMultiplier(final float i_multiplier){
-		multiplier = i_multiplier;
+		values.multiplier[index] = i_multiplier;
 	}
 
 	
@@ -152,5 +198,14 @@ public abstract class ControlInput implements PCPconstants {
 	 * This method is called before each frame to update the slider values.
 	 */
 	abstract void update();
+
+	/**
+	 * Copy the current state of this input into a device snapshot.
+	 * @param snapshot the snapshot being written by the poll thread
+	 * @param index the position of this input in the device's input list
+	 */
+	void copyTo(DeviceSnapshot snapshot, int index){
+		snapshot.values[index] = getValue();
+	}
 	
 }
@@ -42,25 +42,37 @@ import net.java.games.input.Component;
  */
 class ControlRelativeSlider extends ControlSlider{
 
-	ControlRelativeSlider(Component i_component){
-		super(i_component);
+	ControlRelativeSlider(Component i_component, InputValues i_values, int i_index){
+		super(i_component, i_values, i_index);
 	}
 	
 	private float pollValue = 0;
 
+	/**
+	 * Total movement since the slider was created, used for snapshots.
+	 */
+	private float movedValue = 0;
+
 	/**
 	 * This method is called before each frame to update the slider values.
 	 */
 	void update(){
-		if(PApplet.abs(actualValue) < component.getDeadZone()){
+		if(PApplet.abs(getValue()) < component.getDeadZone()){
 		}
 		else {
-			pollValue += component.getPollData()*multiplier;
+			float change = component.getPollData()*getMultiplier();
+			pollValue += change;
+			movedValue += change;
 		}
 	}
+
+	void copyTo(DeviceSnapshot snapshot, int index){
+		snapshot.values[index] = movedValue;
+	}
 	
 	void updateRelative(){
-		actualValue = pollValue;
+		setValue(pollValue);
 		pollValue = 0;
+		callPlugs();
 	}
 }
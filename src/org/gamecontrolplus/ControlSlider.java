@@ -33,8 +33,10 @@
 
 package org.gamecontrolplus;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.java.games.input.Component;
-import processing.core.PApplet;
 
 /**
  * The slider class is for analog input elements having a value
@@ -53,16 +55,18 @@ public class ControlSlider extends ControlInput{
 
 
 	/**
-	 * The total Value of the slider
+	 * The value last passed to the plugged listeners
 	 */
-	protected float totalValue = 0f;
+	private float pluggedValue = 0f;
+
+	private final List<Plug> changePlugs = new ArrayList<Plug>();
 
 	/**
 	 * Initializes a new Slider.
 	 * @param i_component
 	 */
-	ControlSlider(final Component i_component){
-		super(i_component);
+	ControlSlider(final Component i_component, final InputValues i_values, final int i_index){
+		super(i_component, i_values, i_index);
 		inputType = SLIDER_TYPE;
 	}
 
@@ -72,7 +76,7 @@ public class ControlSlider extends ControlInput{
 	 * @return float, the total value of a slider
 	 */
 	public float getTotalValue(){
-		return totalValue;
+		return values.total[index];
 	}
 
 	/**
@@ -80,7 +84,7 @@ public class ControlSlider extends ControlInput{
 	 * Use this method to set the totalvalue to 0.
 	 */
 	public void reset(){
-		totalValue = 0;
+		values.total[index] = 0;
 	}
 
 	/**
@@ -94,15 +98,41 @@ public class ControlSlider extends ControlInput{
 
 	/**
 	 * This method is called before each frame to update the slider values.
+	 * The device normally updates all its absolute sliders together in 
+	 * InputValues.update() instead.
 	 */
 	void update(){
-		actualValue = component.getPollData();
-		if(PApplet.abs(actualValue) < component.getDeadZone()+tolerance){
-			actualValue = 0f;
-		}else{
-			actualValue = component.getPollData()*multiplier;
+		values.updateSlider(index);
+		callPlugs();
+	}
+
+	/**
+	 * Plug a listener that is called once per frame with the value of the 
+	 * slider when it has changed since the previous frame. With Java 8 or 
+	 * later a lambda can be used.
+	 * @param i_listener SliderListener: the listener to call
+	 */
+	public void plug(final SliderListener i_listener){
+		changePlugs.add(new Plug(i_listener));
+		values.setPlugged(index, this);
+	}
+
+	/**
+	 * Call the plugs if the actual value has changed since they were last called.
+	 */
+	protected void callPlugs(){
+		final float actualValue = getValue();
+		if(actualValue != pluggedValue){
+			pluggedValue = actualValue;
+			for(int i = 0; i < changePlugs.size();i++){
+				callPlug(changePlugs.get(i), PlugQueue.CALL_SLIDER, actualValue, 0);
+			}
 		}
-		totalValue += actualValue;
+		traceStamped = false;
+	}
+
+	boolean hasPlugs(){
+		return !changePlugs.isEmpty();
 	}
 
 	void updateRelative(){	}
@@ -115,8 +145,8 @@ public class ControlSlider extends ControlInput{
 	public String toText(String tab){
 		String name = (actualName.length() > 20 ) ?
 				actualName.substring(0, 17) + "..." : (actualName + "                    ").substring(0,  20);
-		String mult = (String.valueOf(multiplier) + "            ").substring(0,15);
-		String tol = (String.valueOf(tolerance) + "            ").substring(0,15);
+		String mult = (String.valueOf(getMultiplier()) + "            ").substring(0,15);
+		String tol = (String.valueOf(getTolerance()) + "            ").substring(0,15);
 		String type = isRelative() ? "(relative)" : ("absolute");
 		return tab + "slider    " + name + mult + tol + type;
 	}
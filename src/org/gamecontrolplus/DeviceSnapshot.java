@@ -0,0 +1,140 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+/**
+ * The state of every input on a device at the end of a single poll. <br>
+ * The values are copied by the poll thread when it has finished updating the 
+ * device so, unlike reading the inputs directly, all the values are 
+ * guaranteed to come from the same poll. <br>
+ * The inputs are in the same order as the device's getInputs() list. For 
+ * buttons the value is greater than zero when pressed, for hats the value is
+ * the hat position and for relative sliders it is the total movement since 
+ * the device was created. The sliders come first, then the buttons and hats.
+ */
+public final class DeviceSnapshot {
+
+	final float[] values;
+	final float[] hatX;
+	final float[] hatY;
+	final int nbrSliders;
+	final long[] buttonBits;
+	long sequence;
+	long nanos;
+
+	DeviceSnapshot(int nbrInputs, int nbrSliders){
+		values = new float[nbrInputs];
+		hatX = new float[nbrInputs];
+		hatY = new float[nbrInputs];
+		this.nbrSliders = nbrSliders;
+		buttonBits = new long[(nbrInputs - nbrSliders + 63) >>> 6];
+	}
+
+	/**
+	 * Get the number of inputs recorded in this snapshot.
+	 */
+	public int getNumberOfInputs(){
+		return values.length;
+	}
+
+	/**
+	 * Get the value of an input.
+	 * @param input the position of the input in the device's input list
+	 */
+	public float getValue(int input){
+		return values[input];
+	}
+
+	/**
+	 * See if a button (or hat) was pressed.
+	 * @param input the position of the input in the device's input list
+	 */
+	public boolean isPressed(int input){
+		return values[input] > 0;
+	}
+
+	/**
+	 * Get the x value of a hat (zero if the input is not a hat).
+	 * @param input the position of the input in the device's input list
+	 */
+	public float getHatX(int input){
+		return hatX[input];
+	}
+
+	/**
+	 * Get the y value of a hat (zero if the input is not a hat).
+	 * @param input the position of the input in the device's input list
+	 */
+	public float getHatY(int input){
+		return hatY[input];
+	}
+
+	/**
+	 * Copy the value of every slider into an array, in the same order as 
+	 * ControlDevice.getSlider(int). If the array is null or too short a new
+	 * one is created, so the same array can be passed in every frame.
+	 * @param dst the array to fill, can be null
+	 * @return the array holding the values
+	 */
+	public float[] getSliderValues(float[] dst){
+		if(dst == null || dst.length < nbrSliders)
+			dst = new float[nbrSliders];
+		System.arraycopy(values, 0, dst, 0, nbrSliders);
+		return dst;
+	}
+
+	/**
+	 * Get whether every button is pressed as a set of bits, bit i of the 
+	 * array being button i of ControlDevice.getButton(int). Bit i is at 
+	 * position i % 64 of array element i / 64. Hats are included and are 
+	 * pressed when not at rest. If the array is null or too short a new one
+	 * is created, so the same array can be passed in every frame.
+	 * @param dst the array to fill, can be null
+	 * @return the array holding the bits
+	 */
+	public long[] getButtonBits(long[] dst){
+		if(dst == null || dst.length < buttonBits.length)
+			dst = new long[buttonBits.length];
+		System.arraycopy(buttonBits, 0, dst, 0, buttonBits.length);
+		return dst;
+	}
+
+	/**
+	 * The number of the poll that produced this snapshot. It will be zero if
+	 * the device has not been polled.
+	 */
+	public long getSequence(){
+		return sequence;
+	}
+
+	/**
+	 * The time (System.nanoTime) the poll that produced this snapshot finished. 
+	 */
+	public long getNanos(){
+		return nanos;
+	}
+}
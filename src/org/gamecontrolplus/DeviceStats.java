@@ -0,0 +1,201 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import net.java.games.input.ControllerStats;
+import net.java.games.input.LatencyHistogram;
+
+/**
+ * The poll and event counters of a single device at one time. <br>
+ * The counters are only kept while stats are enabled with 
+ * ControlIO.setStatsEnabled, and only for devices whose controller is an 
+ * AbstractController. Otherwise they are all zero, apart from the number
+ * of events dropped by the event queue which is always counted. <br>
+ * The latencies are only recorded while latency tracing is enabled with 
+ * ControlIO.setLatencyTracing. They are in nanoseconds, measured from the 
+ * time of each event to the poll reading it, from then to the input being 
+ * updated, from that to each plug call, and the whole time from the event
+ * to the plug call. Plug calls without an event, WHILE_PRESS plugs and 
+ * changes only seen by polling, are timed from the start of the poll 
+ * instead. The times of events from a device whose event clock isn't 
+ * known can't be compared, so for its events only the middle two are 
+ * recorded.
+ * 
+ * @see ControlIOStats
+ */
+public final class DeviceStats {
+
+	private final String name;
+	private final long pollCount;
+	private final long eventCount;
+	private final float pollRate;
+	private final float eventRate;
+	private final long droppedEventCount;
+	private final LatencyHistogram.Snapshot pollTimes;
+	private final boolean traced;
+	private final LatencyHistogram.Snapshot readLatencies;
+	private final LatencyHistogram.Snapshot updateLatencies;
+	private final LatencyHistogram.Snapshot plugLatencies;
+	private final LatencyHistogram.Snapshot endToEndLatencies;
+
+	DeviceStats(final ControlDevice i_device){
+		name = i_device.getName();
+		droppedEventCount = i_device.getDroppedEventCount();
+		ControllerStats stats = i_device.getControllerStats();
+		if(stats == null){
+			pollCount = 0;
+			eventCount = 0;
+			pollRate = 0;
+			eventRate = 0;
+			pollTimes = LatencyHistogram.Snapshot.empty();
+		}else{
+			pollCount = stats.getPollCount();
+			eventCount = stats.getEventCount();
+			pollRate = stats.getPollRate();
+			eventRate = stats.getEventRate();
+			pollTimes = stats.getPollTimes().getSnapshot();
+		}
+		LatencyTrace trace = i_device.getLatencyTrace();
+		LatencyHistogram reads = i_device.getReadLatencies();
+		traced = trace != null;
+		readLatencies = (reads == null) ? LatencyHistogram.Snapshot.empty() : reads.getSnapshot();
+		if(trace == null){
+			updateLatencies = LatencyHistogram.Snapshot.empty();
+			plugLatencies = LatencyHistogram.Snapshot.empty();
+			endToEndLatencies = LatencyHistogram.Snapshot.empty();
+		}else{
+			updateLatencies = trace.updateLatencies.getSnapshot();
+			plugLatencies = trace.plugLatencies.getSnapshot();
+			endToEndLatencies = trace.endToEndLatencies.getSnapshot();
+		}
+	}
+
+	/**
+	 * Get the name of the device.
+	 */
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Get the number of times the device has been polled.
+	 */
+	public long getPollCount(){
+		return pollCount;
+	}
+
+	/**
+	 * Get the number of events read from the device.
+	 */
+	public long getEventCount(){
+		return eventCount;
+	}
+
+	/**
+	 * Get the number of polls per second over about the last second.
+	 */
+	public float getPollRate(){
+		return pollRate;
+	}
+
+	/**
+	 * Get the number of events per second over about the last second.
+	 */
+	public float getEventRate(){
+		return eventRate;
+	}
+
+	/**
+	 * Get the number of events dropped because the event queue was full.
+	 */
+	public long getDroppedEventCount(){
+		return droppedEventCount;
+	}
+
+	/**
+	 * Get the histogram of how long each poll took, in nanoseconds.
+	 */
+	public LatencyHistogram.Snapshot getPollTimes(){
+		return pollTimes;
+	}
+
+	/**
+	 * Whether latency was traced when these counters were read.
+	 */
+	public boolean isTraced(){
+		return traced;
+	}
+
+	/**
+	 * Get the histogram of the time from each event to the poll reading it.
+	 */
+	public LatencyHistogram.Snapshot getReadLatencies(){
+		return readLatencies;
+	}
+
+	/**
+	 * Get the histogram of the time from the poll reading each event to the
+	 * input being updated with it.
+	 */
+	public LatencyHistogram.Snapshot getUpdateLatencies(){
+		return updateLatencies;
+	}
+
+	/**
+	 * Get the histogram of the time from an input being updated to each of 
+	 * its plugs being called. With deferred plugs this includes waiting 
+	 * for the next frame.
+	 */
+	public LatencyHistogram.Snapshot getPlugLatencies(){
+		return plugLatencies;
+	}
+
+	/**
+	 * Get the histogram of the time from each event to each plug it caused
+	 * being called, or from the poll for plugs called without an event.
+	 */
+	public LatencyHistogram.Snapshot getEndToEndLatencies(){
+		return endToEndLatencies;
+	}
+
+	/**
+	 * Get a text description of these counters, one line or two if latency
+	 * is traced.
+	 * @param tab
+	 */
+	public String toText(String tab){
+		String s = tab + name + "  polls " + pollCount + " (" + Math.round(pollRate) + "/s)  events " + eventCount
+				+ " (" + Math.round(eventRate) + "/s)  dropped " + droppedEventCount 
+				+ "  poll mean " + Math.round(pollTimes.getMean()) + "ns  99% < " + pollTimes.getPercentile(99) + "ns";
+		if(traced){
+			s += "\n" + tab + "  latency 99% <  read " + readLatencies.getPercentile(99) + "ns  update " 
+					+ updateLatencies.getPercentile(99) + "ns  plug " + plugLatencies.getPercentile(99) 
+					+ "ns  end to end " + endToEndLatencies.getPercentile(99) + "ns";
+		}
+		return s;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+/**
+ * The values of every input on every device for the current frame. <br>
+ * ControlIO takes a new snapshot before each frame is drawn so it will not 
+ * change while draw() is executing. Each device's values all come from a
+ * single poll of that device.
+ * 
+ * @see DeviceSnapshot
+ */
+public final class InputSnapshot {
+
+	private DeviceSnapshot[] devices = new DeviceSnapshot[0];
+
+	InputSnapshot(){
+	}
+
+	/**
+	 * Collect the latest snapshot from each device. Called on the sketch
+	 * thread before each frame.
+	 * @param deviceList a copy of the device list
+	 * @param n the number of devices in the copy
+	 */
+	void acquire(ControlDevice[] deviceList, int n){
+		if(devices.length != n)
+			devices = new DeviceSnapshot[n];
+		for(int i = 0; i < n; i++)
+			devices[i] = deviceList[i].acquireSnapshot();
+	}
+
+	/**
+	 * Get the number of devices in this snapshot.
+	 */
+	public int getNumberOfDevices(){
+		return devices.length;
+	}
+
+	/**
+	 * Get the snapshot of a single device.
+	 * @param device the device number as used by ControlIO.getDevice(int)
+	 */
+	public DeviceSnapshot getDevice(int device){
+		return devices[device];
+	}
+
+	/**
+	 * Get the value of an input.
+	 * @param device the device number as used by ControlIO.getDevice(int)
+	 * @param input the position of the input in the device's input list
+	 */
+	public float getValue(int device, int input){
+		return devices[device].values[input];
+	}
+}
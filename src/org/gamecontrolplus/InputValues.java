@@ -0,0 +1,138 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import net.java.games.input.Component;
+
+/**
+ * The values, multipliers and tolerances of all the inputs on a device, 
+ * kept in arrays indexed by the input's position in the device's input 
+ * list. Sliders come first, then buttons and hats. <br>
+ * The ControlInput objects read and write their own entries. Polling the
+ * absolute sliders and reading the raw button values is done here in one 
+ * loop over the arrays, so only the inputs that keep extra state (buttons,
+ * hats and relative sliders) are updated one object at a time.
+ */
+final class InputValues {
+
+	final float[] value;
+	final float[] multiplier;
+	final float[] tolerance;
+
+	/**
+	 * Sum of the values of each absolute slider, see ControlSlider.getTotalValue()
+	 */
+	final float[] total;
+
+	/**
+	 * Pressed state of each button and hat, one bit per button
+	 */
+	final long[] buttonBits;
+
+	final int sliderCount;
+
+	private final Component[] components;
+	private final boolean[] relative;
+
+	/**
+	 * Absolute sliders that have plugs, null for the others
+	 */
+	private final ControlSlider[] pluggedSliders;
+
+	/**
+	 * @param components the components of the inputs, sliders first
+	 * @param sliderCount the number of sliders
+	 */
+	InputValues(final Component[] components, final int sliderCount){
+		int count = components.length;
+		this.components = components;
+		this.sliderCount = sliderCount;
+		value = new float[count];
+		multiplier = new float[count];
+		tolerance = new float[count];
+		total = new float[count];
+		relative = new boolean[count];
+		pluggedSliders = new ControlSlider[sliderCount];
+		buttonBits = new long[(count - sliderCount + 63) >>> 6];
+		for(int i = 0; i < count; i++){
+			multiplier[i] = 1f;
+			relative[i] = components[i].isRelative();
+		}
+	}
+
+	/**
+	 * Read the new value of every absolute slider and the raw value of every
+	 * button. Called on the poll thread after the controller has been polled.
+	 */
+	void update(){
+		for(int i = 0; i < sliderCount; i++){
+			if(relative[i])
+				continue;
+			updateSlider(i);
+			if(pluggedSliders[i] != null)
+				pluggedSliders[i].callPlugs();
+		}
+		for(int i = sliderCount; i < value.length; i++){
+			value[i] = components[i].getPollData()*8;
+		}
+	}
+
+	/**
+	 * Read the new value of an absolute slider, applying its dead zone, 
+	 * tolerance and multiplier.
+	 */
+	void updateSlider(final int i){
+		float v = components[i].getPollData();
+		if(Math.abs(v) < components[i].getDeadZone() + tolerance[i]){
+			v = 0f;
+		}else{
+			v *= multiplier[i];
+		}
+		value[i] = v;
+		total[i] += v;
+	}
+
+	/**
+	 * Have the slider's plugs called after each update of its value.
+	 */
+	void setPlugged(final int i, final ControlSlider slider){
+		pluggedSliders[i] = slider;
+	}
+
+	/**
+	 * Set the pressed bit of a button.
+	 * @param i the index of the button in the input list
+	 */
+	void setPressed(final int i, final boolean pressed){
+		int bit = i - sliderCount;
+		if(pressed){
+			buttonBits[bit >>> 6] |= 1L << bit;
+		}else{
+			buttonBits[bit >>> 6] &= ~(1L << bit);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import net.java.games.input.Event;
+import net.java.games.input.EventClock;
+import net.java.games.input.LatencyHistogram;
+
+/**
+ * The latency histograms of a device while latency tracing is enabled. <br>
+ * The controller records the time from each event to the poll reading it.
+ * This records the stages after that: from the poll reading the event to 
+ * the input being updated with it, from the input being updated to each 
+ * plug being called, and the whole time from the event to the plug call. 
+ * All the times are System.nanoTime(), the event times are converted with
+ * the controller's event clock. <br>
+ * Button events are passed to their buttons, and while latency is traced 
+ * the events of plugged sliders are passed to them too, so their plug 
+ * calls are timed from the event. Plugs called without an event, WHILE_PRESS 
+ * plugs and changes only seen by polling, are timed from the start of the
+ * poll that read the state instead.
+ */
+final class LatencyTrace {
+
+	/**
+	 * Converts the event times, null if they can't be compared with 
+	 * System.nanoTime()
+	 */
+	private final EventClock clock;
+
+	final LatencyHistogram updateLatencies = new LatencyHistogram();
+	final LatencyHistogram plugLatencies = new LatencyHistogram();
+	final LatencyHistogram endToEndLatencies = new LatencyHistogram();
+
+	/**
+	 * The time the current poll of the device started. Only used on the 
+	 * poll thread.
+	 */
+	long pollNanos;
+
+	LatencyTrace(final EventClock i_clock){
+		clock = i_clock;
+	}
+
+	/**
+	 * Called on the poll thread when an input is updated with an event. 
+	 * Remembers the times in the input for its plugs.
+	 */
+	void updated(final ControlInput i_input, final Event i_event){
+		final long now = System.nanoTime();
+		final long readNanos = i_event.getReadNanos();
+		if(readNanos != 0)
+			updateLatencies.record(now - readNanos);
+		i_input.traceEventNanos = (clock == null) ? 0 : clock.toNanoTime(i_event.getNanos());
+		i_input.traceUpdateNanos = now;
+		i_input.traceStamped = true;
+	}
+
+	/**
+	 * Called when a plug of an input is about to be called and the input 
+	 * was not updated by an event in this poll.
+	 */
+	void updated(final ControlInput i_input){
+		i_input.traceEventNanos = pollNanos;
+		i_input.traceUpdateNanos = System.nanoTime();
+		i_input.traceStamped = true;
+	}
+
+	/**
+	 * Called just before a plug is called.
+	 * @param i_eventNanos the time of the event, 0 if there was none
+	 * @param i_updateNanos the time the input was updated
+	 * @param i_now the time now
+	 */
+	void plugCalled(final long i_eventNanos, final long i_updateNanos, final long i_now){
+		plugLatencies.record(i_now - i_updateNanos);
+		if(i_eventNanos != 0)
+			endToEndLatencies.record(i_now - i_eventNanos);
+	}
+}
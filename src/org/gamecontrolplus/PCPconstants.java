@@ -47,6 +47,19 @@ public interface PCPconstants {
 	int BUTTON_TYPE		= 1;
 	int HAT_TYPE		= 2;
 	int SLIDER_TYPE		= 3;
+
+	int POLL_FIXED_RATE		= 0;
+	int POLL_HYBRID			= 1;
+	int POLL_FREE_RUNNING	= 2;
+
+	// Same values as the net.java.games.input.EventQueue policies
+	int EVENTS_DROP_NEWEST	= 0;
+	int EVENTS_DROP_OLDEST	= 1;
+	int EVENTS_GROW			= 2;
+	int EVENTS_COALESCE		= 3;
+
+	int PLUGS_IMMEDIATE		= 0;
+	int PLUGS_DEFERRED		= 1;
 	
 	String SEPARATOR	= "\t";
 }
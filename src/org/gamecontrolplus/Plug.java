@@ -35,20 +35,45 @@ package org.gamecontrolplus;
 
 import java.lang.reflect.Method;
 
+import net.java.games.input.LatencyHistogram;
+
 /**
 * A Plug is the invocation of a method to handle incoming Events.
 * These methods are plugged by reflection, so a plug needs the name 
-* of this method and the object where it is declared.
+* of this method and the object where it is declared. A plug can also
+* wrap a ButtonListener, HatListener or SliderListener, which is called
+* directly. <br>
+* Calling a plug does not create objects, the argument array and the 
+* boxed hat values are reused while the values stay the same.
 * @author Christian Riekoff
 *
 */
 class Plug{
 
+	private static final Object[] NO_ARGS = new Object[0];
+	private static final Class<?>[] NO_PARAMS = new Class<?>[0];
+	private static final Class<?>[] HAT_PARAMS = new Class<?>[]{float.class, float.class};
+
 	/**
-	 * The plugged method
+	 * The plugged method, null if the plug wraps a listener
 	 */
 	private final Method method;
 
+	/**
+	 * Listeners wrapped by this plug, at most one is not null
+	 */
+	private final ButtonListener buttonListener;
+	private final HatListener hatListener;
+	private final SliderListener sliderListener;
+
+	/**
+	 * Reused arguments for calling a plugged hat method and the values 
+	 * they currently hold
+	 */
+	private Object[] args;
+	private float argX = Float.NaN;
+	private float argY = Float.NaN;
+
 	/**
 	 * Name of the method to plug
 	 */
@@ -84,6 +109,9 @@ class Plug{
 		objectClass = object.getClass();
 		methodName = i_methodName;
 		method = initPlug();
+		buttonListener = null;
+		hatListener = null;
+		sliderListener = null;
 	}
 	
 	/**
@@ -102,6 +130,54 @@ class Plug{
 		methodName = i_methodName;
 		hasParameter = i_hasParameter;
 		method = initPlug();
+		buttonListener = null;
+		hatListener = null;
+		sliderListener = null;
+		if(hasParameter){
+			args = new Object[]{Float.valueOf(argX), Float.valueOf(argY)};
+		}
+	}
+
+	/**
+	 * Initializes a new Plug calling the given listener.
+	 * @param i_listener
+	 */
+	public Plug(final ButtonListener i_listener){
+		this(i_listener, i_listener, null, null);
+	}
+
+	/**
+	 * Initializes a new Plug calling the given listener.
+	 * @param i_listener
+	 */
+	public Plug(final HatListener i_listener){
+		this(i_listener, null, i_listener, null);
+	}
+
+	/**
+	 * Initializes a new Plug calling the given listener.
+	 * @param i_listener
+	 */
+	public Plug(final SliderListener i_listener){
+		this(i_listener, null, null, i_listener);
+	}
+
+	private Plug(
+		final Object i_listener,
+		final ButtonListener i_buttonListener,
+		final HatListener i_hatListener,
+		final SliderListener i_sliderListener
+	){
+		if(i_listener == null){
+			throw new NullPointerException("Error on plug: the listener is null");
+		}
+		object = i_listener;
+		objectClass = object.getClass();
+		methodName = objectClass.getName();
+		method = null;
+		buttonListener = i_buttonListener;
+		hatListener = i_hatListener;
+		sliderListener = i_sliderListener;
 	}
 	
 	boolean hasParamter(){
@@ -139,11 +215,20 @@ class Plug{
 	}
 
 	/**
-	 * Intitializes the method that has been plugged.
+	 * Intitializes the method that has been plugged. The method with the
+	 * expected parameters is looked up directly, the declared methods are
+	 * only searched to report a wrong signature.
 	 * @return
 	 */
 	private Method initPlug(){		
 		if (methodName != null && methodName.length() > 0){
+			try{
+				final Method method = objectClass.getDeclaredMethod(methodName, hasParameter ? HAT_PARAMS : NO_PARAMS);
+				method.setAccessible(true);
+				return method;
+			}catch (NoSuchMethodException e){
+				// search below to explain what is wrong
+			}
 			final Method[] objectMethods = objectClass.getDeclaredMethods();
 			
 			for (int i = 0; i < objectMethods.length; i++){
@@ -170,8 +255,25 @@ class Plug{
 	 * @param i_value
 	 */
 	void call(final float i_x,final float i_y){
-      try{
-			method.invoke(object,new Object[]{new Float(i_x),new Float(i_y)});
+		if(hatListener != null){
+			hatListener.hatEvent(i_x, i_y);
+			return;
+		}
+		if(method == null){
+			call();
+			return;
+		}
+		try{
+			// compare the bits so NaN and -0 are boxed like any other change
+			if(Float.floatToRawIntBits(i_x) != Float.floatToRawIntBits(argX)){
+				argX = i_x;
+				args[0] = Float.valueOf(i_x);
+			}
+			if(Float.floatToRawIntBits(i_y) != Float.floatToRawIntBits(argY)){
+				argY = i_y;
+				args[1] = Float.valueOf(i_y);
+			}
+			method.invoke(object,args);
 		}catch (Exception e){
 			e.printStackTrace();
 			throw new RuntimeException("Error on calling plug: " + methodName);
@@ -179,12 +281,49 @@ class Plug{
 	}
 	
 	void call(){
+		if(buttonListener != null){
+			buttonListener.buttonEvent();
+			return;
+		}
+		if(method == null){
+			throw new RuntimeException("Error on calling plug: " + methodName + " can not be called without values");
+		}
 		try{
-			method.invoke(object,new Object[]{});
+			method.invoke(object,NO_ARGS);
 		}catch (Exception e){
 			e.printStackTrace();
 			throw new RuntimeException("Error on calling plug: " + methodName);
 		}
 	}
+
+	/**
+	 * Calls the plugged slider listener with the value of the slider.
+	 * @param i_value
+	 */
+	void call(final float i_value){
+		sliderListener.sliderEvent(i_value);
+	}
+
+	/**
+	 * Calls the plug as a button, hat or slider plug and records how long
+	 * the call took.
+	 * @param i_kind PlugQueue.CALL_BUTTON, CALL_HAT or CALL_SLIDER
+	 * @param i_times the histogram to record in, null to not time the call
+	 */
+	void call(final int i_kind, final float i_x, final float i_y, final LatencyHistogram i_times){
+		final long start = (i_times == null) ? 0 : System.nanoTime();
+		switch(i_kind){
+			case PlugQueue.CALL_HAT:
+				call(i_x, i_y);
+				break;
+			case PlugQueue.CALL_SLIDER:
+				call(i_x);
+				break;
+			default:
+				call();
+		}
+		if(i_times != null)
+			i_times.record(System.nanoTime() - start);
+	}
 }
 
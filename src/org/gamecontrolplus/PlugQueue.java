@@ -0,0 +1,221 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.java.games.input.LatencyHistogram;
+
+/**
+ * Bounded queue of plug calls used when plugs are deferred to the 
+ * animation thread. <br>
+ * Any number of poll threads can add calls and a single thread, the one
+ * calling ControlIO.pre(), runs them. Adding never blocks or creates 
+ * objects: the call is written into a preallocated slot and each slot 
+ * has a sequence number saying whether it is free or holds a call for
+ * the current lap of the ring. When the queue is full the call is dropped 
+ * and counted.
+ */
+final class PlugQueue {
+
+	/**
+	 * Kinds of call, matching the call methods of Plug
+	 */
+	static final int CALL_BUTTON = 0;
+	static final int CALL_HAT = 1;
+	static final int CALL_SLIDER = 2;
+
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final Plug[] plugs;
+	private final int[] kinds;
+	private final float[] xs;
+	private final float[] ys;
+	private final LatencyTrace[] traces;
+	private final long[] eventNanos;
+	private final long[] updateNanos;
+
+	/**
+	 * Position the next call is added at, shared by the producers
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Position of the next call to run, only used by the consumer
+	 */
+	private long head = 0;
+
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile long deferred = 0;
+	private volatile long delivered = 0;
+
+	/**
+	 * Histogram the calls are timed in, null when they are not timed
+	 */
+	volatile LatencyHistogram plugTimes;
+
+	/**
+	 * Create a queue holding at least the given number of calls, the 
+	 * capacity is rounded up to a power of 2.
+	 */
+	PlugQueue(int capacity){
+		int size = 1;
+		while(size < capacity)
+			size <<= 1;
+		mask = size - 1;
+		sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++)
+			sequences.set(i, i);
+		plugs = new Plug[size];
+		kinds = new int[size];
+		xs = new float[size];
+		ys = new float[size];
+		traces = new LatencyTrace[size];
+		eventNanos = new long[size];
+		updateNanos = new long[size];
+	}
+
+	/**
+	 * Add a plug call to the queue.
+	 * @param plug the plug to call
+	 * @param kind CALL_BUTTON, CALL_HAT or CALL_SLIDER
+	 * @param x the hat x value or the slider value
+	 * @param y the hat y value
+	 * @param trace the latency trace of the device, null if not traced
+	 * @param event the time of the event that caused the call, for the trace
+	 * @param update the time the input was updated, for the trace
+	 * @return false if the queue was full and the call dropped
+	 */
+	boolean offer(final Plug plug, final int kind, final float x, final float y, 
+			final LatencyTrace trace, final long event, final long update){
+		long pos = tail.get();
+		while(true){
+			int index = (int)pos & mask;
+			long diff = sequences.get(index) - pos;
+			if(diff == 0){
+				if(tail.compareAndSet(pos, pos + 1))
+					break;
+				pos = tail.get();
+			}else if(diff < 0){
+				dropped.incrementAndGet();
+				return false;
+			}else{
+				pos = tail.get();
+			}
+		}
+		int index = (int)pos & mask;
+		plugs[index] = plug;
+		kinds[index] = kind;
+		xs[index] = x;
+		ys[index] = y;
+		traces[index] = trace;
+		eventNanos[index] = event;
+		updateNanos[index] = update;
+		// publish the slot to the consumer
+		sequences.lazySet(index, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Run at most budget queued calls, in the order they were added. Calls
+	 * left in the queue are run on a later frame and counted as deferred.
+	 * If a plug throws an exception the calls after it stay queued.
+	 * @param budget the maximum number of calls to run
+	 * @return the number of calls run
+	 */
+	int drain(final int budget){
+		final LatencyHistogram times = plugTimes;
+		int count = 0;
+		try{
+			while(count < budget){
+				int index = (int)head & mask;
+				if(sequences.get(index) != head + 1)
+					return count;
+				Plug plug = plugs[index];
+				int kind = kinds[index];
+				float x = xs[index];
+				float y = ys[index];
+				LatencyTrace trace = traces[index];
+				long event = eventNanos[index];
+				long update = updateNanos[index];
+				plugs[index] = null;
+				traces[index] = null;
+				// give the slot back to the producers before calling 
+				sequences.lazySet(index, head + mask + 1);
+				head++;
+				count++;
+				if(trace != null)
+					trace.plugCalled(event, update, System.nanoTime());
+				plug.call(kind, x, y, times);
+			}
+			int left = size();
+			if(left > 0)
+				deferred += left;
+			return count;
+		}finally{
+			delivered += count;
+		}
+	}
+
+	/**
+	 * The number of calls waiting in the queue.
+	 */
+	int size(){
+		long size = tail.get() - head;
+		return size < 0 ? 0 : (int)size;
+	}
+
+	int getCapacity(){
+		return mask + 1;
+	}
+
+	/**
+	 * The number of calls dropped because the queue was full.
+	 */
+	long getDroppedCount(){
+		return dropped.get();
+	}
+
+	/**
+	 * The total number of calls that were left queued at the end of a 
+	 * frame because the budget was used up. A call waiting for several 
+	 * frames is counted once for each of them.
+	 */
+	long getDeferredCount(){
+		return deferred;
+	}
+
+	/**
+	 * The number of calls run.
+	 */
+	long getDeliveredCount(){
+		return delivered;
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A PollScheduler decides when the ControlIO thread should next poll the
+ * devices. <br>
+ * Three strategies are available <br>
+ * <ul>
+ * <li>POLL_FIXED_RATE - parks the thread until the next poll is due. The due
+ * time is advanced by exactly one period each poll so that any oversleep in
+ * one cycle is recovered in the next (no drift). </li>
+ * <li>POLL_HYBRID - parks the thread until shortly before the next poll is
+ * due and then busy-spins for the remainder. This gives the lowest jitter at
+ * the cost of some CPU time. </li>
+ * <li>POLL_FREE_RUNNING - polls again as soon as the last poll has finished. </li>
+ * </ul>
+ * The scheduler also measures the actual poll rate and jitter achieved.
+ */
+abstract class PollScheduler implements PCPconstants {
+
+	/**
+	 * Default number of polls per second.
+	 */
+	static final float DEFAULT_RATE = 100;
+
+	/**
+	 * Smoothing factor used for the observed rate and jitter.
+	 */
+	private static final float SMOOTHING = 0.05f;
+
+	/**
+	 * Create a scheduler for the given mode.
+	 * @param mode POLL_FIXED_RATE, POLL_HYBRID or POLL_FREE_RUNNING
+	 * @param rate the required number of polls per second
+	 * @return the scheduler
+	 */
+	static PollScheduler makeScheduler(int mode, float rate){
+		PollScheduler scheduler;
+		switch(mode){
+		case POLL_FIXED_RATE:
+			scheduler = new FixedRate();
+			break;
+		case POLL_HYBRID:
+			scheduler = new Hybrid();
+			break;
+		case POLL_FREE_RUNNING:
+			scheduler = new FreeRunning();
+			break;
+		default:
+			throw new RuntimeException("Unknown poll mode " + mode);
+		}
+		scheduler.setRate(rate);
+		return scheduler;
+	}
+
+	/**
+	 * The mode this scheduler implements.
+	 */
+	final int mode;
+
+	/**
+	 * Requested polls per second
+	 */
+	private volatile float rate;
+
+	/**
+	 * Time between polls in nanoseconds
+	 */
+	private volatile long period;
+
+	/**
+	 * The time (System.nanoTime) the next poll is due
+	 */
+	protected long nextPoll;
+
+	/**
+	 * Time the last poll started or 0 if not started yet
+	 */
+	private long lastPoll = 0;
+
+	// Statistics read by other threads
+	private volatile float avgPeriod = 0;
+	private volatile float avgJitter = 0;
+
+	protected PollScheduler(int mode){
+		this.mode = mode;
+	}
+
+	/**
+	 * Set the number of polls per second required.
+	 * @param pollRate polls per second (must be &gt; 0)
+	 */
+	void setRate(float pollRate){
+		if(pollRate <= 0)
+			throw new RuntimeException("The poll rate must be greater than zero");
+		rate = pollRate;
+		period = (long)(1000000000L / pollRate);
+	}
+
+	/**
+	 * Get the requested number of polls per second.
+	 */
+	float getRate(){
+		return rate;
+	}
+
+	/**
+	 * Time between polls in nanoseconds.
+	 */
+	long getPeriod(){
+		return period;
+	}
+
+	/**
+	 * Called by the polling thread before the first poll.
+	 */
+	void start(){
+		nextPoll = System.nanoTime();
+		lastPoll = 0;
+	}
+
+	/**
+	 * Called by the polling thread after polling the devices. This will
+	 * return when it is time for the next poll.
+	 */
+	final void waitForNextPoll(){
+		nextPoll += period;
+		long now = System.nanoTime();
+		// If we have fallen more than a period behind (e.g. the sketch was
+		// paused or a device blocked) then restart the schedule rather than
+		// firing a burst of polls to catch up.
+		if(now - nextPoll > period)
+			nextPoll = now;
+		pause();
+		recordPoll(System.nanoTime());
+	}
+
+	/**
+	 * Wait until nextPoll is reached
+	 */
+	protected abstract void pause();
+
+	/**
+	 * Update the observed rate and jitter statistics.
+	 * @param now the time the poll is starting
+	 */
+	private void recordPoll(long now){
+		if(lastPoll != 0){
+			float actual = now - lastPoll;
+			if(avgPeriod == 0)
+				avgPeriod = actual;
+			else {
+				avgJitter += SMOOTHING * (Math.abs(actual - avgPeriod) - avgJitter);
+				avgPeriod += SMOOTHING * (actual - avgPeriod);
+			}
+		}
+		lastPoll = now;
+	}
+
+	/**
+	 * Get the measured number of polls per second.
+	 */
+	float getObservedRate(){
+		float ap = avgPeriod;
+		return ap > 0 ? 1000000000f / ap : 0;
+	}
+
+	/**
+	 * Get the average deviation in the time between polls in milliseconds.
+	 */
+	float getJitter(){
+		return avgJitter / 1000000f;
+	}
+
+	/**
+	 * Park until the next poll is due.
+	 */
+	private static class FixedRate extends PollScheduler {
+
+		FixedRate(){
+			super(POLL_FIXED_RATE);
+		}
+
+		protected void pause(){
+			long remaining;
+			while((remaining = nextPoll - System.nanoTime()) > 0)
+				LockSupport.parkNanos(remaining);
+		}
+	}
+
+	/**
+	 * Park until just before the next poll is due then spin.
+	 */
+	private static class Hybrid extends PollScheduler {
+
+		/**
+		 * Parking is only accurate to a fraction of a millisecond on most
+		 * systems so the final part of the wait is spent spinning.
+		 */
+		private static final long SPIN_NANOS = 200000L;
+
+		Hybrid(){
+			super(POLL_HYBRID);
+		}
+
+		protected void pause(){
+			long remaining;
+			while((remaining = nextPoll - System.nanoTime()) > SPIN_NANOS)
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+			while(nextPoll - System.nanoTime() > 0){
+				// spin
+			}
+		}
+	}
+
+	/**
+	 * Don't wait at all, the rate is ignored.
+	 */
+	private static class FreeRunning extends PollScheduler {
+
+		FreeRunning(){
+			super(POLL_FREE_RUNNING);
+		}
+
+		protected void pause(){
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+/**
+ * A PollWorker owns a thread that repeatedly polls a subset (shard) of the 
+ * available devices. <br>
+ * A device is only ever assigned to one worker so its updates are always 
+ * made in order by the same thread, but a slow device will only delay the 
+ * other devices in its own shard.
+ */
+class PollWorker implements Runnable {
+
+	/**
+	 * The devices polled by this worker. The array is replaced, never 
+	 * modified, so it can be safely read while polling.
+	 */
+	private volatile ControlDevice[] devices = new ControlDevice[0];
+
+	/**
+	 * Decides when the devices are next polled.
+	 */
+	private volatile PollScheduler scheduler;
+
+	/**
+	 * Indicates whether the thread is active.
+	 */
+	private volatile boolean active = true;
+
+	private final Thread thread;
+
+	/**
+	 * Create a worker, the thread is not started until start() is called.
+	 * @param scheduler decides when the devices are polled
+	 * @param id used to name the thread
+	 */
+	PollWorker(PollScheduler scheduler, int id){
+		this.scheduler = scheduler;
+		thread = new Thread(this, "GameControlPlus poll " + id);
+		thread.setDaemon(true);
+	}
+
+	void start(){
+		thread.start();
+	}
+
+	/**
+	 * Stop polling and wait for the current poll to finish.
+	 */
+	void stop(){
+		active = false;
+		if(thread.isAlive() && thread != Thread.currentThread()){
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Add a device to this worker's shard.
+	 */
+	synchronized void add(ControlDevice device){
+		ControlDevice[] current = devices;
+		ControlDevice[] added = new ControlDevice[current.length + 1];
+		System.arraycopy(current, 0, added, 0, current.length);
+		added[current.length] = device;
+		devices = added;
+	}
+
+	/**
+	 * Remove a device from this worker's shard.
+	 * @return true if the device was polled by this worker
+	 */
+	synchronized boolean remove(ControlDevice device){
+		ControlDevice[] current = devices;
+		for (int i = 0; i < current.length; i++){
+			if(current[i] == device){
+				ControlDevice[] removed = new ControlDevice[current.length - 1];
+				System.arraycopy(current, 0, removed, 0, i);
+				System.arraycopy(current, i + 1, removed, i, removed.length - i);
+				devices = removed;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The number of devices polled by this worker.
+	 */
+	int size(){
+		return devices.length;
+	}
+
+	PollScheduler getScheduler(){
+		return scheduler;
+	}
+
+	void setScheduler(PollScheduler scheduler){
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Update every device in this shard once.
+	 */
+	void pollOnce(){
+		ControlDevice[] shard = devices;
+		for (int i = 0; i < shard.length; i++)
+			shard[i].update();
+	}
+
+	public void run(){
+		PollScheduler current = null;
+		while (active){
+			if(current != scheduler){
+				current = scheduler;
+				current.start();
+			}
+			pollOnce();
+			current.waitForNextPoll();
+		}
+	}
+}
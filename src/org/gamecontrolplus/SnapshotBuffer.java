@@ -0,0 +1,101 @@
+/*
+ * Part of the ProControl Plus library - http://www.lagers.org.uk/procontrol
+ * 
+ * Copyright (c) 2014 Peter Lager
+ * <quark(a)lagers.org.uk> http:www.lagers.org.uk
+ * 
+ * This software is provided 'as-is', without any express or implied warranty.
+ * In no event will the authors be held liable for any damages arising from
+ * the use of this software.
+ * 
+ * Permission is granted to anyone to use this software for any purpose,
+ * including commercial applications, and to alter it and redistribute it freely,
+ * subject to the following restrictions:
+ * 
+ * 1. The origin of this software must not be misrepresented;
+ * you must not claim that you wrote the original software.
+ * If you use this software in a product, an acknowledgment in the product
+ * documentation would be appreciated but is not required.
+ * 
+ * 2. Altered source versions must be plainly marked as such,
+ * and must not be misrepresented as being the original software.
+ * 
+ * 3. This notice may not be removed or altered from any source distribution.
+ * 
+ */
+
+package org.gamecontrolplus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer used to pass DeviceSnapshots from the poll thread to the 
+ * sketch thread without locking or creating new objects. <br>
+ * The poll thread always writes to the 'back' buffer and the sketch thread 
+ * always reads from the 'front' buffer. When the poll thread has finished 
+ * writing it swaps its buffer with the shared middle one, and when the sketch
+ * wants the latest values it swaps the front buffer with the middle one, if 
+ * it has been updated since the last swap.
+ */
+final class SnapshotBuffer {
+
+	/**
+	 * Set in state when the middle buffer holds a snapshot not yet seen
+	 * by the reader.
+	 */
+	private static final int FRESH = 4;
+	private static final int INDEX_MASK = 3;
+
+	private final DeviceSnapshot[] buffers = new DeviceSnapshot[3];
+
+	/**
+	 * Index of the middle buffer plus the FRESH flag
+	 */
+	private final AtomicInteger state = new AtomicInteger(1);
+
+	/**
+	 * Index of the buffer owned by the poll thread.
+	 */
+	private int back = 0;
+
+	/**
+	 * Index of the buffer owned by the sketch thread.
+	 */
+	private int front = 2;
+
+	SnapshotBuffer(int nbrInputs, int nbrSliders){
+		for(int i = 0; i < buffers.length; i++)
+			buffers[i] = new DeviceSnapshot(nbrInputs, nbrSliders);
+	}
+
+	/**
+	 * Get the snapshot to be written by the poll thread.
+	 */
+	DeviceSnapshot back(){
+		return buffers[back];
+	}
+
+	/**
+	 * Called by the poll thread once the back snapshot is complete.
+	 */
+	void publish(){
+		back = state.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+
+	/**
+	 * Called by the sketch thread to get the most recently published snapshot.
+	 * The snapshot returned will not change until the next call to acquire.
+	 */
+	DeviceSnapshot acquire(){
+		if((state.get() & FRESH) != 0)
+			front = state.getAndSet(front) & INDEX_MASK;
+		return buffers[front];
+	}
+
+	/**
+	 * Get the snapshot returned by the last call to acquire.
+	 */
+	DeviceSnapshot front(){
+		return buffers[front];
+	}
+}